@@ -0,0 +1,106 @@
+package ru.nlolik.benchmark;
+
+import com.google.gson.JsonPrimitive;
+import net.minecraft.server.MinecraftServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.nlolik.dialog.DialogManager;
+import ru.nlolik.dialog.condition.DialogCondition;
+import ru.nlolik.dialog.condition.DialogConditionFactory;
+import ru.nlolik.dialog.runtime.DialogContext;
+import ru.nlolik.dialog.runtime.NumericResolver;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Button conditions of one node render, five buttons comparing two objectives, evaluated once per
+ * tick. {@code {score:...}} is replaced by a resolver that counts its reads; with
+ * {@code cacheable} on, every iteration checks that each objective was read once per render and
+ * fails the run otherwise. Run with {@code ./gradlew :fabric:jmh -PjmhArgs="ConditionBenchmark"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConditionBenchmark {
+    private static final String[] OBJECTIVES = {"kills", "deaths"};
+
+    @Param({"true", "false"})
+    public boolean cacheable;
+
+    private final AtomicLong reads = new AtomicLong();
+    private MinecraftServer server;
+    private List<DialogCondition> conditions;
+    private DialogContext context;
+    private long renders;
+    private int tick;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        Fixtures.bootstrap();
+        server = Fixtures.server();
+        DialogManager.attachServer(server);
+        DialogManager.placeholders().registerPrefix("score:", objective -> (NumericResolver) context -> {
+            reads.incrementAndGet();
+            return objective.length();
+        }, cacheable);
+        conditions = List.of(
+                condition("{score:kills} >= 1 && {score:deaths} < 10"),
+                condition("{score:kills} >= 5 && {score:deaths} < 10"),
+                condition("{score:kills} >= 10 || {score:deaths} == 0"),
+                condition("{score:kills} > {score:deaths}"),
+                condition("!({score:kills} == 0) && {score:deaths} != 3"));
+        context = new DialogContext(null, null, Fixtures.player("Steve"), server, null);
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        reads.set(0);
+        renders = 0;
+    }
+
+    @Benchmark
+    public int render() {
+        Fixtures.setTick(server, ++tick);
+        renders++;
+        int passed = 0;
+        for (DialogCondition condition : conditions) {
+            if (condition.test(context)) {
+                passed++;
+            }
+        }
+        return passed;
+    }
+
+    @TearDown(Level.Iteration)
+    public void check() {
+        long expected = renders * OBJECTIVES.length;
+        if (cacheable && reads.get() != expected) {
+            throw new IllegalStateException("Expected " + expected + " score reads for " + renders + " renders, got " + reads.get());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DialogManager.detachServer();
+    }
+
+    private static DialogCondition condition(String expression) {
+        return DialogConditionFactory.parse(new JsonPrimitive(expression));
+    }
+}
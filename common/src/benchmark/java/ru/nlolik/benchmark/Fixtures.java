@@ -0,0 +1,80 @@
+package ru.nlolik.benchmark;
+
+import com.mojang.authlib.GameProfile;
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.dedicated.DedicatedServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.player.Player;
+import sun.misc.Unsafe;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.util.UUID;
+
+/**
+ * Game objects for benchmarks that run without a world. They are allocated without running their
+ * constructors and only carry the fields the measured code reads.
+ */
+final class Fixtures {
+    private static final Unsafe UNSAFE = unsafe();
+    private static final VarHandle TICK_COUNT = tickCount();
+
+    private Fixtures() {
+    }
+
+    static void bootstrap() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    static ServerPlayer player(String name) throws ReflectiveOperationException {
+        ServerPlayer player = (ServerPlayer) UNSAFE.allocateInstance(ServerPlayer.class);
+        UUID id = UUID.nameUUIDFromBytes(name.getBytes());
+        field(Player.class, "gameProfile").set(player, new GameProfile(id, name));
+        field(Entity.class, "uuid").set(player, id);
+        return player;
+    }
+
+    /**
+     * Server whose thread is the calling thread. Only {@link MinecraftServer#getTickCount()} and
+     * the thread checks work; the tick count is set with {@link #setTick}.
+     */
+    static MinecraftServer server() throws ReflectiveOperationException {
+        MinecraftServer server = (MinecraftServer) UNSAFE.allocateInstance(DedicatedServer.class);
+        field(MinecraftServer.class, "serverThread").set(server, Thread.currentThread());
+        return server;
+    }
+
+    static void setTick(MinecraftServer server, int tick) {
+        TICK_COUNT.set(server, tick);
+    }
+
+    private static Field field(Class<?> owner, String name) throws NoSuchFieldException {
+        Field field = owner.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+
+    private static VarHandle tickCount() {
+        try {
+            return MethodHandles.privateLookupIn(MinecraftServer.class, MethodHandles.lookup())
+                    .findVarHandle(MinecraftServer.class, "tickCount", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Unsafe unsafe() {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return (Unsafe) field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
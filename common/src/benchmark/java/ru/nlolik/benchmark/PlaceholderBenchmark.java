@@ -0,0 +1,62 @@
+package ru.nlolik.benchmark;
+
+import net.minecraft.server.level.ServerPlayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.nlolik.dialog.runtime.DialogContext;
+import ru.nlolik.dialog.runtime.PlaceholderTemplate;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving a line with the old regex engine against a template compiled once. Run with
+ * {@code ./gradlew :fabric:jmh -PjmhArgs="PlaceholderBenchmark -prof gc"} to see allocation too.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlaceholderBenchmark {
+    private static final Map<String, String> LINES = Map.of(
+            "literal", "Welcome to the village, traveller. The elder has been waiting for you.",
+            "single", "{player_name}",
+            "mixed", "Well done, {player_name}! You broke {event.block} and rolled {random:1:6}. {unknown} stays.");
+
+    @Param({"literal", "single", "mixed"})
+    public String line;
+
+    private String text;
+    private PlaceholderTemplate template;
+    private DialogContext context;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        Fixtures.bootstrap();
+        ServerPlayer player = Fixtures.player("Steve");
+        text = LINES.get(line);
+        template = PlaceholderTemplate.compile(text);
+        context = new DialogContext(null, null, player, null, Map.of("block", "minecraft:stone"));
+    }
+
+    @Benchmark
+    public String regex() {
+        return LegacyPlaceholderEngine.resolve(text, context);
+    }
+
+    @Benchmark
+    public String template() {
+        return template.resolve(context);
+    }
+}
@@ -0,0 +1,68 @@
+package ru.nlolik.benchmark;
+
+import net.minecraft.server.MinecraftServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.nlolik.dialog.runtime.DialogScheduler;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one scheduler tick while {@code pending} tasks wait far in the future. Each tick also
+ * schedules one task due within the next 30 seconds, the way dialog lines are. Run with
+ * {@code ./gradlew :fabric:jmh -PjmhArgs="SchedulerBenchmark"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SchedulerBenchmark {
+    private static final Runnable NOTHING = () -> {
+    };
+
+    @Param({"10000", "100000", "1000000"})
+    public int pending;
+
+    private MinecraftServer server;
+    private DialogScheduler scheduler;
+    private SplittableRandom random;
+    private int tick;
+
+    /**
+     * Starts every iteration from a fresh scheduler. The waiting tasks are due 20 to 60 million
+     * ticks ahead, further than an iteration gets, so the measured ticks never run them.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() throws ReflectiveOperationException {
+        server = Fixtures.server();
+        tick = 0;
+        Fixtures.setTick(server, tick);
+        scheduler = new DialogScheduler();
+        scheduler.attach(server);
+        random = new SplittableRandom(pending);
+        for (int i = 0; i < pending; i++) {
+            scheduler.schedule(20_000_000 + random.nextInt(40_000_000), NOTHING);
+        }
+    }
+
+    @Benchmark
+    public int tick() {
+        Fixtures.setTick(server, ++tick);
+        scheduler.schedule(1 + random.nextInt(600), NOTHING);
+        scheduler.tick();
+        return scheduler.pendingTasks();
+    }
+}
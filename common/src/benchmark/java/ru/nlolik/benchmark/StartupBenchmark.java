@@ -0,0 +1,141 @@
+package ru.nlolik.benchmark;
+
+import com.google.gson.stream.JsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.nlolik.dialog.DialogManager;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time of a full {@link DialogManager#reload()} over a generated set of quest dialogs, with the
+ * binary cache deleted before every reload ({@code cold}) or left from the previous one
+ * ({@code warm}). The dialogs are written under {@code config/chatdialogs/dialogs/benchmark} of
+ * the working directory, which the {@code jmh} task points at {@code build/benchmark-run}. Run with
+ * {@code ./gradlew :fabric:jmh -PjmhArgs="StartupBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StartupBenchmark {
+    private static final Path CORPUS = Paths.get("config", "chatdialogs", "dialogs", "benchmark");
+    private static final Path CACHE_FILE = Paths.get("config", "chatdialogs", "cache", "dialogs.bin");
+    private static final int FILES_PER_FOLDER = 500;
+    private static final int NODES = 12;
+
+    @Param({"10000"})
+    public int dialogs;
+
+    @Param({"cold", "warm"})
+    public String cache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Fixtures.bootstrap();
+        writeCorpus(dialogs);
+        Files.deleteIfExists(CACHE_FILE);
+        DialogManager.reload();
+    }
+
+    @Setup(Level.Invocation)
+    public void prepare() throws IOException {
+        if (cache.equals("cold")) {
+            Files.deleteIfExists(CACHE_FILE);
+        }
+    }
+
+    @Benchmark
+    public DialogManager.ReloadTimings reload() {
+        return DialogManager.reload();
+    }
+
+    private static void writeCorpus(int count) throws IOException {
+        if (Files.exists(CORPUS)) {
+            try (Stream<Path> walk = Files.walk(CORPUS)) {
+                for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+        for (int quest = 0; quest < count; quest++) {
+            Path folder = CORPUS.resolve("g" + quest / FILES_PER_FOLDER);
+            Files.createDirectories(folder);
+            try (Writer out = Files.newBufferedWriter(folder.resolve("q" + quest + ".json"), StandardCharsets.UTF_8);
+                 JsonWriter writer = new JsonWriter(out)) {
+                writeQuest(writer, quest);
+            }
+        }
+    }
+
+    /**
+     * One quest of twelve nodes with four lines and three conditional buttons each, started by
+     * entering a region. This is about 20 KB of JSON, similar to the larger dialogs servers ship.
+     */
+    private static void writeQuest(JsonWriter writer, int quest) throws IOException {
+        writer.beginObject();
+        writer.name("id").value("quest_" + quest);
+        writer.name("name").value("Quest " + quest);
+        writer.name("start").value("n0");
+        writer.name("nodes").beginObject();
+        for (int node = 0; node < NODES; node++) {
+            writer.name("n" + node).beginObject();
+            writer.name("lines").beginArray();
+            for (int line = 0; line < 4; line++) {
+                writer.beginObject();
+                writer.name("text").value("Line " + node + "-" + line + " of quest " + quest
+                        + ": lorem ipsum dolor sit amet, consectetur adipiscing elit, {player}");
+                writer.name("text_color").value("gold");
+                writer.name("ticks").value(20);
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.name("buttons").beginArray();
+            for (int button = 0; button < 3; button++) {
+                writer.beginObject();
+                writer.name("id").value("b" + button);
+                writer.name("text").value("Option " + button);
+                writer.name("next").value("n" + (node + button + 1) % NODES);
+                writer.name("button_color").value("green");
+                writer.name("conditions").beginArray().value("{score:q" + quest + "} >= " + button).endArray();
+                writer.name("actions").beginArray().beginObject().name("command").value("say chose " + button).endObject().endArray();
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.name("actions").beginArray().beginObject()
+                    .name("command").value("scoreboard players add @s q" + quest + " 1")
+                    .endObject().endArray();
+            writer.name("time_to_start").value(0.5);
+            writer.endObject();
+        }
+        writer.endObject();
+        writer.name("events").beginArray().beginObject();
+        writer.name("event").value("on_region_enter");
+        writer.name("region").beginObject();
+        writer.name("min").beginArray().value(0).value(60).value(0).endArray();
+        writer.name("max").beginArray().value(5).value(70).value(5).endArray();
+        writer.endObject();
+        writer.endObject().endArray();
+        writer.endObject();
+    }
+}
@@ -15,8 +15,11 @@ import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerPlayer;
 import ru.nlolik.dialog.DialogManager;
 import ru.nlolik.dialog.config.DialogDefinition;
+import ru.nlolik.dialog.event.DialogEventManager;
 import ru.nlolik.dialog.runtime.DialogRuntime;
+import ru.nlolik.dialog.runtime.DialogScheduler;
 
+import java.util.Locale;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -44,6 +47,10 @@ public final class CommandManager {
                 .requires(source -> source.hasPermission(2))
                 .executes(ctx -> reload(ctx.getSource())));
 
+        root.then(Commands.literal("stats")
+                .requires(source -> source.hasPermission(2))
+                .executes(ctx -> stats(ctx.getSource())));
+
         root.then(Commands.literal("stop")
                 .then(Commands.argument("target", EntityArgument.player())
                         .requires(source -> source.hasPermission(2))
@@ -102,15 +109,32 @@ public final class CommandManager {
     }
 
     private static int reload(CommandSourceStack source) {
-        DialogManager.reload();
+        DialogManager.ReloadTimings timings = DialogManager.reload();
         int count = DialogManager.definitions().size();
         source.sendSuccess(() -> Component.translatable("command.chatdialogs.dialog.reloaded", count), false);
+        source.sendSuccess(() -> Component.translatable("command.chatdialogs.dialog.reload_timings",
+                millis(timings.totalNanos()), timings.files(), timings.cachedFiles(), millis(timings.enumerateNanos()), millis(timings.readNanos()),
+                millis(timings.parseNanos()), timings.workers(), millis(timings.indexNanos()), millis(timings.triggerNanos())), false);
         if (count > 0) {
             source.sendSuccess(() -> Component.translatable("command.chatdialogs.dialog.available", String.join(", ", DialogManager.dialogSuggestions())), false);
         }
         return 1;
     }
 
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+
+    private static int stats(CommandSourceStack source) {
+        DialogScheduler.Stats scheduler = DialogManager.scheduler().stats();
+        source.sendSuccess(() -> Component.translatable("command.chatdialogs.dialog.stats.scheduler",
+                scheduler.pending(), scheduler.carriedOver(), scheduler.deferredTasks(), scheduler.deferredTicks(), scheduler.maxDeferredTicks()), false);
+        DialogEventManager.Stats events = DialogManager.events().stats();
+        source.sendSuccess(() -> Component.translatable("command.chatdialogs.dialog.stats.events",
+                events.queued(), events.maxQueued(), events.dispatched(), events.dropped(), events.cascadeDropped()), false);
+        return 1;
+    }
+
     private static CompletableFuture<Suggestions> suggestDialogs(CommandContext<CommandSourceStack> context, SuggestionsBuilder builder) {
         return SharedSuggestionProvider.suggest(DialogManager.dialogSuggestions(), builder);
     }
@@ -0,0 +1,203 @@
+package ru.nlolik.dialog;
+
+import com.google.gson.stream.JsonReader;
+import ru.nlolik.ChatDialogs;
+import ru.nlolik.dialog.config.BinaryJson;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary copy of the JSON of all dialog files, written after a reload and read back on the next
+ * one. A file whose size and modification time, or failing that whose content hash, still match
+ * its entry is parsed from the cached tree through {@link #reader} instead of being decoded and
+ * tokenised again.
+ *
+ * <p>The cache holds the JSON rather than the built definitions: those bind placeholder resolvers
+ * and registry entries of the running game, which other mods may change between boots.
+ *
+ * <p>Layout: magic, format version, then per file its relative path, size, modification time,
+ * SHA-256 hash and {@link BinaryJson} tree. Integers are varints.
+ */
+final class DialogCache {
+    private static final int MAGIC = 0x43444331;
+    private static final int VERSION = 2;
+    private static final int HASH_LENGTH = 32;
+
+    static final DialogCache EMPTY = new DialogCache(ByteBuffer.allocate(0), Map.of());
+
+    record Entry(long size, long modified, byte[] hash, int offset, int length) {
+    }
+
+    private final ByteBuffer buffer;
+    private final Map<String, Entry> entries;
+
+    private DialogCache(ByteBuffer buffer, Map<String, Entry> entries) {
+        this.buffer = buffer;
+        this.entries = entries;
+    }
+
+    Entry entry(String path) {
+        return entries.get(path);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Reader over the tree of {@code entry}. Safe to use from several threads at once, one reader
+     * per thread.
+     */
+    JsonReader reader(Entry entry) {
+        return BinaryJson.reader(buffer.slice(entry.offset(), entry.length()));
+    }
+
+    /**
+     * Copy of the encoded tree of {@code entry}, to be written again unchanged.
+     */
+    byte[] tree(Entry entry) {
+        byte[] tree = new byte[entry.length()];
+        buffer.get(entry.offset(), tree);
+        return tree;
+    }
+
+    /**
+     * Reads the cache file with a single read, or returns {@link #EMPTY} if it is missing, from
+     * another format version or damaged.
+     */
+    static DialogCache read(Path file) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                return EMPTY;
+            }
+            buffer = ByteBuffer.allocate((int) length);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            }
+            buffer.flip();
+        } catch (NoSuchFileException e) {
+            return EMPTY;
+        } catch (IOException e) {
+            ChatDialogs.LOGGER.warn("Failed to read dialog cache {}", file, e);
+            return EMPTY;
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return EMPTY;
+            }
+            int count = varInt(buffer);
+            Map<String, Entry> entries = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                byte[] path = new byte[varInt(buffer)];
+                buffer.get(path);
+                long size = varLong(buffer);
+                long modified = varLong(buffer);
+                byte[] hash = new byte[HASH_LENGTH];
+                buffer.get(hash);
+                int length = varInt(buffer);
+                if (length > buffer.remaining()) {
+                    throw new IllegalArgumentException("Truncated entry");
+                }
+                entries.put(new String(path, StandardCharsets.UTF_8), new Entry(size, modified, hash, buffer.position(), length));
+                buffer.position(buffer.position() + length);
+            }
+            return new DialogCache(buffer, entries);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            ChatDialogs.LOGGER.warn("Ignoring damaged dialog cache {}", file);
+            return EMPTY;
+        }
+    }
+
+    record Source(String path, long size, long modified, byte[] hash, byte[] tree) {
+    }
+
+    /**
+     * Writes {@code sources} to a temporary file and moves it over {@code file}.
+     */
+    static void write(Path file, List<Source> sources) {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeVarLong(out, sources.size());
+                for (Source source : sources) {
+                    byte[] path = source.path().getBytes(StandardCharsets.UTF_8);
+                    writeVarLong(out, path.length);
+                    out.write(path);
+                    writeVarLong(out, source.size());
+                    writeVarLong(out, source.modified());
+                    out.write(source.hash());
+                    writeVarLong(out, source.tree().length);
+                    out.write(source.tree());
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            ChatDialogs.LOGGER.warn("Failed to write dialog cache {}", file, e);
+        }
+    }
+
+    /**
+     * Encodes the JSON text {@code content}, read as leniently as dialog files are.
+     */
+    static byte[] encode(byte[] content) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8));
+        reader.setLenient(true);
+        try {
+            reader.peek();
+        } catch (EOFException e) {
+            return BinaryJson.empty();
+        }
+        return BinaryJson.encode(reader);
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int varInt(ByteBuffer buffer) {
+        long value = varLong(buffer);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Length out of range");
+        }
+        return (int) value;
+    }
+
+    private static long varLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = buffer.get();
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0 && shift < 64);
+        return value;
+    }
+
+}
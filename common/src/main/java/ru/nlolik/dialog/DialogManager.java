@@ -1,39 +1,62 @@
 package ru.nlolik.dialog;
 
-import com.google.gson.JsonElement;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonIOException;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.util.RandomSource;
+import net.minecraft.world.level.storage.LevelResource;
 import ru.nlolik.ChatDialogs;
+import ru.nlolik.dialog.condition.ConditionDependency;
 import ru.nlolik.dialog.config.DialogDefinition;
 import ru.nlolik.dialog.config.DialogFile;
+import ru.nlolik.dialog.config.DialogLinker;
+import ru.nlolik.dialog.config.DialogSettings;
 import ru.nlolik.dialog.event.DialogEventManager;
+import ru.nlolik.dialog.runtime.CooldownStore;
 import ru.nlolik.dialog.runtime.DialogRuntime;
 import ru.nlolik.dialog.runtime.DialogScheduler;
+import ru.nlolik.dialog.runtime.InventoryIndex;
+import ru.nlolik.dialog.runtime.MobCountService;
+import ru.nlolik.dialog.runtime.PlaceholderRegistry;
+import ru.nlolik.dialog.runtime.WaitRegistry;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
 public final class DialogManager {
     private static final Path CONFIG_ROOT = Paths.get("config", "chatdialogs", "dialogs");
+    private static final Path SETTINGS_FILE = Paths.get("config", "chatdialogs", "settings.json");
+    private static final Path CACHE_FILE = Paths.get("config", "chatdialogs", "cache", "dialogs.bin");
     private static final String SAMPLE_FILE_NAME = "example.json";
     private static final String SAMPLE_FILE_CONTENT = """
             {
@@ -60,8 +83,16 @@ public final class DialogManager {
     private static final Map<String, String> LOOKUP = new ConcurrentHashMap<>();
     private static final DialogScheduler SCHEDULER = new DialogScheduler();
     private static final DialogEventManager EVENT_MANAGER = new DialogEventManager();
+    private static final WaitRegistry WAITS = new WaitRegistry();
+    private static final PlaceholderRegistry PLACEHOLDERS = new PlaceholderRegistry();
+    private static final MobCountService MOB_COUNTS = new MobCountService();
+    private static final InventoryIndex INVENTORIES = new InventoryIndex();
+    private static final CooldownStore COOLDOWNS = new CooldownStore();
+    private static final Map<Path, LoadedFile> FILES = new ConcurrentSkipListMap<>();
+    private static DialogWatcher WATCHER;
     private static volatile List<String> SUGGESTIONS = List.of();
-    private static MinecraftServer server;
+    private static volatile DialogSettings SETTINGS = DialogSettings.DEFAULT;
+    private static volatile MinecraftServer server;
 
     private DialogManager() {
     }
@@ -69,14 +100,28 @@ public final class DialogManager {
     public static synchronized void attachServer(MinecraftServer minecraftServer) {
         server = minecraftServer;
         SCHEDULER.attach(server);
+        COOLDOWNS.attach(server);
+        if (SETTINGS.persistCooldowns()) {
+            COOLDOWNS.load(cooldownsFile(server));
+        }
+        updateWatcher();
     }
 
     public static synchronized void detachServer() {
         ACTIVE.values().forEach(DialogRuntime::stop);
         ACTIVE.clear();
         SCHEDULER.detach();
+        WAITS.clear();
+        PLACEHOLDERS.cache().clear();
+        MOB_COUNTS.clear();
+        INVENTORIES.clear();
+        if (SETTINGS.persistCooldowns() && server != null) {
+            COOLDOWNS.save(cooldownsFile(server));
+        }
+        COOLDOWNS.clear();
         EVENT_MANAGER.clear();
         server = null;
+        updateWatcher();
     }
 
     public static DialogScheduler scheduler() {
@@ -85,12 +130,37 @@ public final class DialogManager {
 
     public static void tick() {
         SCHEDULER.tick();
+        EVENT_MANAGER.tick();
     }
 
     public static DialogEventManager events() {
         return EVENT_MANAGER;
     }
 
+    public static PlaceholderRegistry placeholders() {
+        return PLACEHOLDERS;
+    }
+
+    public static MobCountService mobCounts() {
+        return MOB_COUNTS;
+    }
+
+    public static InventoryIndex inventories() {
+        return INVENTORIES;
+    }
+
+    public static CooldownStore cooldowns() {
+        return COOLDOWNS;
+    }
+
+    public static WaitRegistry waits() {
+        return WAITS;
+    }
+
+    public static DialogSettings settings() {
+        return SETTINGS;
+    }
+
     public static MinecraftServer server() {
         return server;
     }
@@ -105,18 +175,94 @@ public final class DialogManager {
         return RandomSource.create();
     }
 
-    public static void reload() {
+    /**
+     * Durations of the reload phases in nanoseconds. Read and parse run on several workers at
+     * once and are summed over all of them, so together they can exceed {@code totalNanos}.
+     */
+    public record ReloadTimings(int files, int cachedFiles, int workers, long enumerateNanos, long readNanos, long parseNanos,
+                                long indexNanos, long triggerNanos, long totalNanos) {
+    }
+
+    /**
+     * Parse result of one dialog file with the hash of the content it was parsed from. A file
+     * that could not be read or parsed has no hash. The encoded tree is only kept until the binary
+     * cache has been written.
+     */
+    private record LoadedFile(List<DialogDefinition> dialogs, byte[] hash, long size, long modified, byte[] tree,
+                              boolean cached, long readNanos, long parseNanos) {
+        boolean failed() {
+            return hash == null;
+        }
+
+        LoadedFile withoutTree() {
+            return new LoadedFile(dialogs, hash, size, modified, null, cached, readNanos, parseNanos);
+        }
+    }
+
+    /**
+     * Reloads settings and every dialog file. Files are read and parsed on the common fork-join
+     * pool and merged in path order, so later files win duplicate ids the same way on every run.
+     */
+    public static ReloadTimings reload() {
+        long started = System.nanoTime();
         ensureFolders();
-        List<DialogDefinition> loaded = new ArrayList<>();
+        loadSettings();
+        List<Path> paths = new ArrayList<>();
         if (Files.exists(CONFIG_ROOT)) {
-            try {
-                Files.walk(CONFIG_ROOT)
-                        .filter(path -> path.toString().endsWith(".json"))
-                        .forEach(path -> loaded.addAll(readFile(path)));
+            try (Stream<Path> walk = Files.walk(CONFIG_ROOT)) {
+                walk.filter(DialogManager::isDialogFile)
+                        .sorted()
+                        .forEach(paths::add);
             } catch (IOException e) {
                 ChatDialogs.LOGGER.error("Failed to enumerate dialog files", e);
             }
         }
+        long enumerated = System.nanoTime();
+        DialogCache cache = DialogCache.read(CACHE_FILE);
+        List<LoadedFile> files = paths.parallelStream()
+                .map(path -> readFile(path, cache))
+                .toList();
+        long readNanos = 0L;
+        long parseNanos = 0L;
+        int cachedFiles = 0;
+        List<DialogCache.Source> sources = new ArrayList<>(paths.size());
+        FILES.clear();
+        for (int i = 0; i < paths.size(); i++) {
+            LoadedFile file = files.get(i);
+            FILES.put(paths.get(i), file.withoutTree());
+            readNanos += file.readNanos();
+            parseNanos += file.parseNanos();
+            if (file.cached()) {
+                cachedFiles++;
+            }
+            if (!file.failed() && file.tree() != null) {
+                sources.add(new DialogCache.Source(cacheKey(paths.get(i)), file.size(), file.modified(), file.hash(), file.tree()));
+            }
+        }
+        if (cachedFiles < paths.size() || cache.size() != sources.size()) {
+            DialogCache.write(CACHE_FILE, sources);
+        }
+        long indexStarted = System.nanoTime();
+        installDefinitions();
+        long indexed = System.nanoTime();
+        EVENT_MANAGER.updateTriggers(new ArrayList<>(DEFINITIONS.values()));
+        long finished = System.nanoTime();
+        updateWatcher();
+        ReloadTimings timings = new ReloadTimings(paths.size(), cachedFiles, Math.min(paths.size(), ForkJoinPool.getCommonPoolParallelism() + 1),
+                enumerated - started, readNanos, parseNanos, indexed - indexStarted, finished - indexed, finished - started);
+        ChatDialogs.LOGGER.info("Loaded {} dialog definitions from {} files in {} ms", DEFINITIONS.size(), paths.size(), timings.totalNanos() / 1_000_000L);
+        return timings;
+    }
+
+    /**
+     * Rebuilds the id, alias and suggestion lookups from the parsed files in path order. This
+     * covers every loaded file, also when only a few of them changed.
+     */
+    private static void installDefinitions() {
+        List<DialogDefinition> loaded = new ArrayList<>();
+        for (LoadedFile file : FILES.values()) {
+            loaded.addAll(file.dialogs());
+        }
         Map<String, DialogDefinition> byId = new HashMap<>();
         loaded.forEach(def -> byId.put(def.id(), def));
         Map<String, Integer> aliasCounts = new HashMap<>();
@@ -148,20 +294,204 @@ public final class DialogManager {
         SUGGESTIONS = aliasMap.keySet().stream()
                 .sorted()
                 .toList();
-        EVENT_MANAGER.updateTriggers(new ArrayList<>(DEFINITIONS.values()));
-        ChatDialogs.LOGGER.info("Loaded {} dialog definitions", DEFINITIONS.size());
+        DialogLinker.checkTriggers(DEFINITIONS.values(), DialogManager::findDefinition);
     }
 
-    private static List<DialogDefinition> readFile(Path path) {
-        List<DialogDefinition> list = new ArrayList<>();
-        try (BufferedReader reader = Files.newBufferedReader(path)) {
-            JsonElement element = JsonParser.parseReader(reader);
-            DialogFile file = DialogFile.parse(element, path.getFileName().toString());
-            list.addAll(file.dialogs());
-        } catch (IOException | JsonIOException | JsonSyntaxException e) {
+    /**
+     * Called by the watcher thread with the paths that changed on disk. Files are re-read there
+     * and skipped when their content hash is unchanged; the rest is applied on the server thread.
+     * Only reading and parsing follow the number of changed files: applying them rebuilds the
+     * lookups and the trigger and region indexes from all loaded definitions, so that step still
+     * grows with the whole dialog folder, although it neither reads nor parses files.
+     */
+    private static void applyFileChanges(Set<Path> changed) {
+        long started = System.nanoTime();
+        Set<Path> candidates = new TreeSet<>();
+        for (Path path : changed) {
+            if (isDialogFile(path)) {
+                candidates.add(path);
+                continue;
+            }
+            for (Path known : FILES.keySet()) {
+                if (known.startsWith(path)) {
+                    candidates.add(known);
+                }
+            }
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(DialogManager::isDialogFile).forEach(candidates::add);
+                } catch (IOException e) {
+                    ChatDialogs.LOGGER.warn("Failed to enumerate dialog files in {}", path, e);
+                }
+            }
+        }
+        Map<Path, LoadedFile> updates = new LinkedHashMap<>();
+        for (Path path : candidates) {
+            LoadedFile previous = FILES.get(path);
+            if (!Files.isRegularFile(path)) {
+                if (previous != null) {
+                    updates.put(path, null);
+                }
+                continue;
+            }
+            byte[] content;
+            try {
+                content = Files.readAllBytes(path);
+            } catch (IOException e) {
+                continue;
+            }
+            byte[] hash = hash(content);
+            if (previous != null && Arrays.equals(previous.hash(), hash)) {
+                continue;
+            }
+            LoadedFile file = parseFile(path, content, hash, content.length, 0L, 0L, false);
+            if (!file.failed()) {
+                updates.put(path, file);
+            }
+        }
+        if (updates.isEmpty()) {
+            return;
+        }
+        SCHEDULER.execute(() -> {
+            long indexStarted = System.nanoTime();
+            updates.forEach((path, file) -> {
+                if (file == null) {
+                    FILES.remove(path);
+                } else {
+                    FILES.put(path, file);
+                }
+            });
+            installDefinitions();
+            EVENT_MANAGER.updateTriggers(new ArrayList<>(DEFINITIONS.values()));
+            long finished = System.nanoTime();
+            ChatDialogs.LOGGER.info("Reloaded {} changed dialog files in {} ms, {} ms of it rebuilding lookups and triggers",
+                    updates.size(), (finished - started) / 1_000_000L, (finished - indexStarted) / 1_000_000L);
+        });
+    }
+
+    private static synchronized void updateWatcher() {
+        DialogSettings.Watch watch = SETTINGS.watch();
+        boolean wanted = watch.enabled() && server != null && Files.isDirectory(CONFIG_ROOT);
+        if (WATCHER != null && (!wanted || WATCHER.debounceMillis() != watch.debounceMillis())) {
+            WATCHER.stop();
+            WATCHER = null;
+        }
+        if (wanted && WATCHER == null) {
+            try {
+                WATCHER = DialogWatcher.start(CONFIG_ROOT, watch.debounceMillis(), DialogManager::applyFileChanges);
+            } catch (IOException e) {
+                ChatDialogs.LOGGER.error("Failed to watch dialog folder {}", CONFIG_ROOT, e);
+            }
+        }
+    }
+
+    private static boolean isDialogFile(Path path) {
+        return path.toString().endsWith(".json");
+    }
+
+    /**
+     * Loads a dialog file, parsing it from the binary cache when the file's size and modification
+     * time, or otherwise its content hash, match the cached entry.
+     */
+    private static LoadedFile readFile(Path path, DialogCache cache) {
+        long started = System.nanoTime();
+        long size;
+        long modified;
+        byte[] content = null;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            size = attributes.size();
+            modified = attributes.lastModifiedTime().toMillis();
+            DialogCache.Entry entry = cache.entry(cacheKey(path));
+            byte[] hash = null;
+            if (entry != null && (entry.size() != size || entry.modified() != modified)) {
+                content = Files.readAllBytes(path);
+                hash = hash(content);
+            }
+            if (entry != null && (content == null || Arrays.equals(hash, entry.hash()))) {
+                LoadedFile file = parseCached(path, cache, entry, size, modified, started);
+                if (file != null) {
+                    return file;
+                }
+            }
+            if (content == null) {
+                content = Files.readAllBytes(path);
+            }
+        } catch (IOException e) {
             ChatDialogs.LOGGER.error("Failed to read dialog file {}", path, e);
+            return new LoadedFile(List.of(), null, 0L, 0L, null, false, System.nanoTime() - started, 0L);
+        }
+        return parseFile(path, content, hash(content), size, modified, System.nanoTime() - started, true);
+    }
+
+    private static LoadedFile parseCached(Path path, DialogCache cache, DialogCache.Entry entry, long size, long modified, long started) {
+        long read = System.nanoTime();
+        DialogFile file;
+        try {
+            file = DialogFile.parse(cache.reader(entry), path.getFileName().toString(), SETTINGS.lazyNodes());
+        } catch (IOException | RuntimeException e) {
+            ChatDialogs.LOGGER.warn("Ignoring damaged cache entry for {}", path);
+            return null;
+        }
+        return new LoadedFile(file.dialogs(), entry.hash(), size, modified, cache.tree(entry), true, read - started, System.nanoTime() - read);
+    }
+
+    /**
+     * Parses the JSON text of a dialog file straight into definitions and, when {@code encode} is
+     * set, encodes it for the binary cache.
+     */
+    private static LoadedFile parseFile(Path path, byte[] content, byte[] hash, long size, long modified, long readNanos, boolean encode) {
+        long started = System.nanoTime();
+        DialogFile file;
+        try {
+            JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8));
+            reader.setLenient(true);
+            file = DialogFile.parse(reader, path.getFileName().toString(), SETTINGS.lazyNodes());
+        } catch (IOException | RuntimeException e) {
+            ChatDialogs.LOGGER.error("Failed to read dialog file {}: {}", path, e.getMessage());
+            return new LoadedFile(List.of(), null, size, modified, null, false, readNanos, System.nanoTime() - started);
+        }
+        long parsed = System.nanoTime();
+        byte[] tree = null;
+        if (encode) {
+            try {
+                tree = DialogCache.encode(content);
+            } catch (IOException | RuntimeException e) {
+                ChatDialogs.LOGGER.warn("Failed to cache dialog file {}", path, e);
+            }
+        }
+        return new LoadedFile(file.dialogs(), hash, size, modified, tree, false, readNanos + System.nanoTime() - parsed, parsed - started);
+    }
+
+    private static String cacheKey(Path path) {
+        return CONFIG_ROOT.relativize(path).toString().replace('\\', '/');
+    }
+
+    private static byte[] hash(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void loadSettings() {
+        DialogSettings settings = DialogSettings.DEFAULT;
+        if (Files.exists(SETTINGS_FILE)) {
+            try (BufferedReader reader = Files.newBufferedReader(SETTINGS_FILE)) {
+                settings = DialogSettings.parse(JsonParser.parseReader(reader));
+            } catch (IOException | JsonIOException | JsonSyntaxException e) {
+                ChatDialogs.LOGGER.error("Failed to read dialog settings {}", SETTINGS_FILE, e);
+            }
         }
-        return list;
+        SETTINGS = settings;
+        SCHEDULER.setTickBudgetNanos(settings.tickBudgetNanos());
+        MOB_COUNTS.configure(settings.mobCountCacheTicks(), settings.mobCountGridRadius());
+        EVENT_MANAGER.configure(settings.events());
+    }
+
+    private static Path cooldownsFile(MinecraftServer minecraftServer) {
+        return minecraftServer.getWorldPath(LevelResource.ROOT).resolve("chatdialogs").resolve("cooldowns.json");
     }
 
     private static void ensureFolders() {
@@ -175,6 +505,7 @@ public final class DialogManager {
         }
         normaliseDialogFiles();
         createSampleDialog();
+        createSettingsFile();
     }
 
     private static void normaliseDialogFiles() {
@@ -225,6 +556,18 @@ public final class DialogManager {
         }
     }
 
+    private static void createSettingsFile() {
+        if (Files.exists(SETTINGS_FILE)) {
+            return;
+        }
+        try {
+            String content = new GsonBuilder().setPrettyPrinting().create().toJson(DialogSettings.DEFAULT.toJson());
+            Files.writeString(SETTINGS_FILE, content, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
+        } catch (IOException e) {
+            ChatDialogs.LOGGER.warn("Failed to create dialog settings file", e);
+        }
+    }
+
     public static boolean startDialog(String dialogId, ServerPlayer player, String sessionId) {
         return startDialog(dialogId, player, sessionId, null);
     }
@@ -235,6 +578,13 @@ public final class DialogManager {
             ChatDialogs.LOGGER.warn("Dialog '{}' not found", dialogId);
             return false;
         }
+        if (!SCHEDULER.onServerThread()) {
+            SCHEDULER.execute(() -> startDialog(dialogId, player, sessionId, startNode));
+            return true;
+        }
+        if (COOLDOWNS.acquire(player.getUUID(), definition.cooldown()) > 0) {
+            return false;
+        }
         stopDialog(player.getUUID());
         DialogRuntime runtime = new DialogRuntime(sessionId, definition, player, SCHEDULER, startNode);
         ACTIVE.put(player.getUUID(), runtime);
@@ -245,6 +595,10 @@ public final class DialogManager {
 
     public static boolean stopDialog(UUID playerId) {
         DialogRuntime runtime = ACTIVE.get(playerId);
+        if (runtime != null && !SCHEDULER.onServerThread()) {
+            SCHEDULER.execute(() -> stopDialog(playerId));
+            return true;
+        }
         if (runtime != null) {
             runtime.stop();
             ChatDialogs.LOGGER.info("Stopped dialog '{}' for {}", runtime.definition().id(), runtime.player().getGameProfile().getName());
@@ -282,6 +636,50 @@ public final class DialogManager {
     }
 
     public static void triggerCustomEvent(String name, ServerPlayer player, Map<String, Object> data) {
+        if (!SCHEDULER.onServerThread()) {
+            Map<String, Object> snapshot = data == null ? null : new HashMap<>(data);
+            SCHEDULER.execute(() -> EVENT_MANAGER.triggerCustom(name, player, snapshot));
+            return;
+        }
         EVENT_MANAGER.triggerCustom(name, player, data);
     }
+
+    /**
+     * Reports a score write so that waits on the objective re-check and {@code on_score_change}
+     * triggers fire. Neither loader exposes scoreboard updates, so mods that change scores outside
+     * of dialog actions can call this themselves. Placeholder values already read for the player
+     * in this tick are dropped first, so woken waits and triggers see the new score.
+     */
+    public static void notifyScoreChange(ServerPlayer player, String objective, int old, int score) {
+        if (!SCHEDULER.onServerThread()) {
+            SCHEDULER.execute(() -> notifyScoreChange(player, objective, old, score));
+            return;
+        }
+        PLACEHOLDERS.cache().invalidate(player.getUUID());
+        WAITS.notify(player.getUUID(), ConditionDependency.score(objective));
+        EVENT_MANAGER.handleScoreChange(player, objective, old, score);
+    }
+
+    public static void submit(Runnable task) {
+        SCHEDULER.execute(task);
+    }
+
+    public static CompletableFuture<Boolean> submitStart(String dialogId, UUID playerId, String startNode) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        SCHEDULER.execute(() -> {
+            ServerPlayer player = server == null ? null : server.getPlayerList().getPlayer(playerId);
+            result.complete(player != null && startDialog(dialogId, player, UUID.randomUUID().toString(), startNode));
+        }, () -> result.complete(false));
+        return result;
+    }
+
+    public static void submitCustomEvent(String name, UUID playerId, Map<String, Object> data) {
+        Map<String, Object> snapshot = data == null ? null : new HashMap<>(data);
+        SCHEDULER.execute(() -> {
+            ServerPlayer player = server == null ? null : server.getPlayerList().getPlayer(playerId);
+            if (player != null) {
+                EVENT_MANAGER.triggerCustom(name, player, snapshot);
+            }
+        });
+    }
 }
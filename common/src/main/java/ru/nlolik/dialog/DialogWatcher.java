@@ -0,0 +1,119 @@
+package ru.nlolik.dialog;
+
+import ru.nlolik.ChatDialogs;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Watches the dialog folder and its subfolders on a daemon thread. Changed paths are collected
+ * until no further event has arrived for the debounce interval, so an editor saving a file in
+ * several steps produces one batch. Lost events are reported as a change of the whole folder.
+ */
+final class DialogWatcher {
+    private final Path root;
+    private final long debounceMillis;
+    private final Consumer<Set<Path>> listener;
+    private final WatchService service;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private DialogWatcher(Path root, long debounceMillis, Consumer<Set<Path>> listener) throws IOException {
+        this.root = root;
+        this.debounceMillis = debounceMillis;
+        this.listener = listener;
+        this.service = FileSystems.getDefault().newWatchService();
+        registerAll(root);
+        this.thread = new Thread(this::run, "ChatDialogs file watcher");
+        this.thread.setDaemon(true);
+    }
+
+    static DialogWatcher start(Path root, long debounceMillis, Consumer<Set<Path>> listener) throws IOException {
+        DialogWatcher watcher = new DialogWatcher(root, debounceMillis, listener);
+        watcher.thread.start();
+        return watcher;
+    }
+
+    long debounceMillis() {
+        return debounceMillis;
+    }
+
+    void stop() {
+        running = false;
+        try {
+            service.close();
+        } catch (IOException e) {
+            ChatDialogs.LOGGER.warn("Failed to close dialog file watcher", e);
+        }
+        thread.interrupt();
+    }
+
+    private void run() {
+        Set<Path> changed = new LinkedHashSet<>();
+        try {
+            while (running) {
+                collect(service.take(), changed);
+                WatchKey next;
+                while ((next = service.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    collect(next, changed);
+                }
+                if (!changed.isEmpty()) {
+                    listener.accept(Set.copyOf(changed));
+                    changed.clear();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        } catch (RuntimeException e) {
+            ChatDialogs.LOGGER.error("Dialog file watcher stopped", e);
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                changed.add(root);
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    registerAll(path);
+                } catch (IOException e) {
+                    ChatDialogs.LOGGER.warn("Failed to watch dialog folder {}", path, e);
+                }
+            }
+            changed.add(path);
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private void registerAll(Path start) throws IOException {
+        try (Stream<Path> walk = Files.walk(start)) {
+            for (Path directory : (Iterable<Path>) walk.filter(Files::isDirectory)::iterator) {
+                WatchKey key = directory.register(service,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                directories.put(key, directory);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.nlolik.dialog.action;
+
+import ru.nlolik.ChatDialogs;
+import ru.nlolik.dialog.DialogManager;
+import ru.nlolik.dialog.runtime.DialogContext;
+
+import java.util.List;
+
+public final class ActionRunner {
+    private ActionRunner() {
+    }
+
+    /**
+     * Runs {@code actions} in order and then {@code then}. A {@link SuspendingAction} pauses the
+     * list until it resumes or skips it, so {@code then} may run on a later tick.
+     */
+    public static void run(List<DialogAction> actions, DialogContext context, String failureMessage, Runnable then) {
+        run(actions, 0, context, failureMessage, then);
+    }
+
+    private static void run(List<DialogAction> actions, int start, DialogContext context, String failureMessage, Runnable then) {
+        for (int i = start; i < actions.size(); i++) {
+            DialogAction action = actions.get(i);
+            try {
+                if (action instanceof SuspendingAction suspending) {
+                    int next = i + 1;
+                    suspending.execute(context, () -> run(actions, next, context, failureMessage, then), () -> run(actions, actions.size(), context, failureMessage, then));
+                    return;
+                }
+                action.execute(context);
+            } catch (Exception e) {
+                ChatDialogs.LOGGER.error(failureMessage, e);
+            } finally {
+                DialogManager.placeholders().cache().invalidate(context.player().getUUID());
+                DialogManager.inventories().invalidate(context.player().getUUID());
+            }
+        }
+        if (then != null) {
+            then.run();
+        }
+    }
+}
@@ -2,23 +2,24 @@ package ru.nlolik.dialog.action;
 
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import net.minecraft.commands.CommandSourceStack;
+import ru.nlolik.dialog.DialogManager;
 import ru.nlolik.dialog.runtime.DialogContext;
-import ru.nlolik.dialog.runtime.PlaceholderEngine;
+import ru.nlolik.dialog.runtime.PlaceholderTemplate;
 
 public class CommandAction implements DialogAction {
-    private final String command;
+    private final PlaceholderTemplate command;
     private final boolean runAsPlayer;
     private final boolean silent;
 
     public CommandAction(String command, boolean runAsPlayer, boolean silent) {
-        this.command = command;
+        this.command = PlaceholderTemplate.compile(command);
         this.runAsPlayer = runAsPlayer;
         this.silent = silent;
     }
 
     @Override
     public void execute(DialogContext context) throws CommandSyntaxException {
-        String resolved = PlaceholderEngine.resolve(command, context);
+        String resolved = command.resolve(context);
         CommandSourceStack source;
         if (runAsPlayer) {
             source = context.player().createCommandSourceStack();
@@ -30,5 +31,6 @@ public class CommandAction implements DialogAction {
             source = source.withSuppressedOutput();
         }
         context.server().getCommands().performPrefixedCommand(source, resolved.startsWith("/") ? resolved.substring(1) : resolved);
+        DialogManager.waits().notifyPlayer(context.player().getUUID());
     }
 }
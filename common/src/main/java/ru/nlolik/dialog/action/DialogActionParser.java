@@ -91,7 +91,8 @@ public final class DialogActionParser {
                     DialogCondition condition = DialogConditionFactory.parse(object.get("condition"));
                     int interval = object.has("interval") ? object.get("interval").getAsInt() : 20;
                     int timeout = object.has("timeout") ? object.get("timeout").getAsInt() : -1;
-                    yield List.of(new WaitUntilAction(condition, interval, timeout));
+                    String event = object.has("event") ? object.get("event").getAsString() : null;
+                    yield List.of(new WaitUntilAction(condition, event, interval, timeout));
                 }
                 default -> List.of();
             };
@@ -0,0 +1,29 @@
+package ru.nlolik.dialog.action;
+
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+import ru.nlolik.ChatDialogs;
+
+final class ItemIds {
+    private ItemIds() {
+    }
+
+    /**
+     * Looks up an item by id, logging a warning and returning {@code null} if there is none.
+     * Actions resolve constant ids on first use and keep the item, so items of mods that register
+     * after dialogs are parsed are still found.
+     */
+    static Item resolve(String id, String action) {
+        ResourceLocation location = ResourceLocation.tryParse(id);
+        if (location == null) {
+            ChatDialogs.LOGGER.warn("Invalid item id '{}' in {} action", id, action);
+            return null;
+        }
+        Item item = BuiltInRegistries.ITEM.getOptional(location).orElse(null);
+        if (item == null) {
+            ChatDialogs.LOGGER.warn("Unknown item '{}' in {} action", id, action);
+        }
+        return item;
+    }
+}
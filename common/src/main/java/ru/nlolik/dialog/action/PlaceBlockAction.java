@@ -7,24 +7,24 @@ import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
 import ru.nlolik.ChatDialogs;
 import ru.nlolik.dialog.runtime.DialogContext;
-import ru.nlolik.dialog.runtime.PlaceholderEngine;
+import ru.nlolik.dialog.runtime.PlaceholderTemplate;
 
 public class PlaceBlockAction implements DialogAction {
-    private final String blockId;
-    private final String x;
-    private final String y;
-    private final String z;
+    private final PlaceholderTemplate blockId;
+    private final PlaceholderTemplate x;
+    private final PlaceholderTemplate y;
+    private final PlaceholderTemplate z;
 
     public PlaceBlockAction(String blockId, String x, String y, String z) {
-        this.blockId = blockId;
-        this.x = x;
-        this.y = y;
-        this.z = z;
+        this.blockId = PlaceholderTemplate.compile(blockId);
+        this.x = PlaceholderTemplate.compile(x);
+        this.y = PlaceholderTemplate.compile(y);
+        this.z = PlaceholderTemplate.compile(z);
     }
 
     @Override
     public void execute(DialogContext context) {
-        String resolved = PlaceholderEngine.resolve(blockId, context);
+        String resolved = blockId.resolve(context);
         ResourceLocation location = ResourceLocation.tryParse(resolved);
         if (location == null) {
             ChatDialogs.LOGGER.warn("Invalid block id '{}' in place_block action", resolved);
@@ -39,12 +39,12 @@ public class PlaceBlockAction implements DialogAction {
         context.player().level().setBlockAndUpdate(pos, state);
     }
 
-    private int parseCoordinate(String value, DialogContext context) {
+    private int parseCoordinate(PlaceholderTemplate value, DialogContext context) {
         if (value == null || value.isBlank()) {
             return 0;
         }
         try {
-            return Integer.parseInt(PlaceholderEngine.resolve(value, context));
+            return Integer.parseInt(value.resolve(context));
         } catch (NumberFormatException e) {
             return 0;
         }
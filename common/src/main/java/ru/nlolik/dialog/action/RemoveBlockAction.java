@@ -2,17 +2,17 @@ package ru.nlolik.dialog.action;
 
 import net.minecraft.core.BlockPos;
 import ru.nlolik.dialog.runtime.DialogContext;
-import ru.nlolik.dialog.runtime.PlaceholderEngine;
+import ru.nlolik.dialog.runtime.PlaceholderTemplate;
 
 public class RemoveBlockAction implements DialogAction {
-    private final String x;
-    private final String y;
-    private final String z;
+    private final PlaceholderTemplate x;
+    private final PlaceholderTemplate y;
+    private final PlaceholderTemplate z;
 
     public RemoveBlockAction(String x, String y, String z) {
-        this.x = x;
-        this.y = y;
-        this.z = z;
+        this.x = PlaceholderTemplate.compile(x);
+        this.y = PlaceholderTemplate.compile(y);
+        this.z = PlaceholderTemplate.compile(z);
     }
 
     @Override
@@ -21,12 +21,12 @@ public class RemoveBlockAction implements DialogAction {
         context.player().level().removeBlock(pos, false);
     }
 
-    private int parseCoordinate(String value, DialogContext context) {
+    private int parseCoordinate(PlaceholderTemplate value, DialogContext context) {
         if (value == null || value.isBlank()) {
             return 0;
         }
         try {
-            return Integer.parseInt(PlaceholderEngine.resolve(value, context));
+            return Integer.parseInt(value.resolve(context));
         } catch (NumberFormatException e) {
             return 0;
         }
@@ -3,8 +3,9 @@ package ru.nlolik.dialog.action;
 import net.minecraft.world.scores.Objective;
 import net.minecraft.world.scores.Score;
 import net.minecraft.world.scores.Scoreboard;
+import ru.nlolik.dialog.DialogManager;
 import ru.nlolik.dialog.runtime.DialogContext;
-import ru.nlolik.dialog.runtime.PlaceholderEngine;
+import ru.nlolik.dialog.runtime.PlaceholderTemplate;
 
 public class ScoreAction implements DialogAction {
     public enum Mode {
@@ -14,12 +15,12 @@ public class ScoreAction implements DialogAction {
     }
 
     private final String objective;
-    private final String value;
+    private final PlaceholderTemplate value;
     private final Mode mode;
 
     public ScoreAction(String objective, String value, Mode mode) {
         this.objective = objective;
-        this.value = value;
+        this.value = PlaceholderTemplate.compile(value);
         this.mode = mode;
     }
 
@@ -32,16 +33,18 @@ public class ScoreAction implements DialogAction {
         }
         Score score = scoreboard.getOrCreatePlayerScore(context.player().getScoreboardName(), obj);
         int amount = parseValue(context);
+        int old = score.getScore();
         switch (mode) {
             case SET -> score.setScore(amount);
             case ADD -> score.add(amount);
             case REMOVE -> score.add(-amount);
         }
+        DialogManager.notifyScoreChange(context.player(), objective, old, score.getScore());
     }
 
     private int parseValue(DialogContext context) {
         try {
-            return Integer.parseInt(PlaceholderEngine.resolve(value, context));
+            return Integer.parseInt(value.resolve(context));
         } catch (NumberFormatException e) {
             return 0;
         }
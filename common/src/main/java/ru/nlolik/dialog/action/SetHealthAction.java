@@ -2,19 +2,19 @@ package ru.nlolik.dialog.action;
 
 import net.minecraft.util.Mth;
 import ru.nlolik.dialog.runtime.DialogContext;
-import ru.nlolik.dialog.runtime.PlaceholderEngine;
+import ru.nlolik.dialog.runtime.PlaceholderTemplate;
 
 public class SetHealthAction implements DialogAction {
-    private final String value;
+    private final PlaceholderTemplate value;
 
     public SetHealthAction(String value) {
-        this.value = value;
+        this.value = PlaceholderTemplate.compile(value);
     }
 
     @Override
     public void execute(DialogContext context) {
         try {
-            float health = Float.parseFloat(PlaceholderEngine.resolve(value, context));
+            float health = Float.parseFloat(value.resolve(context));
             context.player().setHealth(Mth.clamp(health, 0.0F, context.player().getMaxHealth()));
         } catch (NumberFormatException ignored) {
         }
@@ -1,18 +1,18 @@
 package ru.nlolik.dialog.action;
 
 import ru.nlolik.dialog.runtime.DialogContext;
-import ru.nlolik.dialog.runtime.PlaceholderEngine;
+import ru.nlolik.dialog.runtime.PlaceholderTemplate;
 
 public class SetWorldTimeAction implements DialogAction {
-    private final String time;
+    private final PlaceholderTemplate time;
 
     public SetWorldTimeAction(String time) {
-        this.time = time;
+        this.time = PlaceholderTemplate.compile(time);
     }
 
     @Override
     public void execute(DialogContext context) {
-        String value = PlaceholderEngine.resolve(time, context);
+        String value = time.resolve(context);
         try {
             long ticks = Long.parseLong(value);
             context.player().serverLevel().setDayTime(ticks);
@@ -6,25 +6,25 @@ import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.MobSpawnType;
 import ru.nlolik.dialog.runtime.DialogContext;
-import ru.nlolik.dialog.runtime.PlaceholderEngine;
+import ru.nlolik.dialog.runtime.PlaceholderTemplate;
 
 public class SpawnMobAction implements DialogAction {
-    private final String entityId;
-    private final String x;
-    private final String y;
-    private final String z;
+    private final PlaceholderTemplate entityId;
+    private final PlaceholderTemplate x;
+    private final PlaceholderTemplate y;
+    private final PlaceholderTemplate z;
 
     public SpawnMobAction(String entityId, String x, String y, String z) {
-        this.entityId = entityId;
-        this.x = x;
-        this.y = y;
-        this.z = z;
+        this.entityId = PlaceholderTemplate.compile(entityId);
+        this.x = PlaceholderTemplate.compile(x);
+        this.y = PlaceholderTemplate.compile(y);
+        this.z = PlaceholderTemplate.compile(z);
     }
 
     @Override
     public void execute(DialogContext context) {
         ServerLevel level = context.player().serverLevel();
-        EntityType<?> type = EntityType.byString(PlaceholderEngine.resolve(entityId, context)).orElse(null);
+        EntityType<?> type = EntityType.byString(entityId.resolve(context)).orElse(null);
         if (type == null) {
             return;
         }
@@ -32,12 +32,12 @@ public class SpawnMobAction implements DialogAction {
         type.spawn(level, null, context.player(), pos, MobSpawnType.COMMAND, true, false);
     }
 
-    private int parse(String value, DialogContext context, int fallback) {
+    private int parse(PlaceholderTemplate value, DialogContext context, int fallback) {
         if (value == null || value.isBlank()) {
             return fallback;
         }
         try {
-            return Integer.parseInt(PlaceholderEngine.resolve(value, context));
+            return Integer.parseInt(value.resolve(context));
         } catch (NumberFormatException e) {
             return fallback;
         }
@@ -0,0 +1,19 @@
+package ru.nlolik.dialog.action;
+
+import ru.nlolik.dialog.runtime.DialogContext;
+
+/**
+ * Action that can hold back the rest of its action list. {@code resume} continues with the next
+ * action once the action is done; {@code skip} drops the remaining actions and continues with
+ * whatever follows the list, such as rendering the node.
+ */
+public interface SuspendingAction extends DialogAction {
+    void execute(DialogContext context, Runnable resume, Runnable skip) throws Exception;
+
+    @Override
+    default void execute(DialogContext context) throws Exception {
+        execute(context, () -> {
+        }, () -> {
+        });
+    }
+}
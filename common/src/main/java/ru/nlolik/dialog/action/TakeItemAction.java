@@ -1,40 +1,42 @@
 package ru.nlolik.dialog.action;
 
 import net.minecraft.core.registries.BuiltInRegistries;
-import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
-import ru.nlolik.ChatDialogs;
+import ru.nlolik.dialog.DialogManager;
+import ru.nlolik.dialog.condition.ConditionDependency;
 import ru.nlolik.dialog.runtime.DialogContext;
-import ru.nlolik.dialog.runtime.PlaceholderEngine;
+import ru.nlolik.dialog.runtime.PlaceholderTemplate;
 
+/**
+ * Removes {@code count} items from the player's inventory. Nothing is taken when the player has
+ * fewer than that.
+ */
 public class TakeItemAction implements DialogAction {
-    private final String itemId;
+    private final PlaceholderTemplate itemId;
+    private volatile Item item;
     private final int count;
 
     public TakeItemAction(String itemId, int count) {
-        this.itemId = itemId;
+        this.itemId = PlaceholderTemplate.compile(itemId);
         this.count = Math.max(1, count);
     }
 
     @Override
     public void execute(DialogContext context) {
-        String resolved = PlaceholderEngine.resolve(itemId, context);
-        ResourceLocation location = ResourceLocation.tryParse(resolved);
-        if (location == null) {
-            ChatDialogs.LOGGER.warn("Invalid item id '{}' in take_item action", resolved);
+        Item target = item(context);
+        if (target == null) {
             return;
         }
-        Item item = BuiltInRegistries.ITEM.get(location);
-        if (item == null) {
+        ServerPlayer player = context.player();
+        if (DialogManager.inventories().count(player, target) < count) {
             return;
         }
-        ServerPlayer player = context.player();
         int remaining = count;
         for (int i = 0; i < player.getInventory().getContainerSize(); i++) {
             ItemStack stack = player.getInventory().getItem(i);
-            if (!stack.isEmpty() && stack.is(item)) {
+            if (!stack.isEmpty() && stack.is(target)) {
                 int remove = Math.min(remaining, stack.getCount());
                 stack.shrink(remove);
                 remaining -= remove;
@@ -43,6 +45,20 @@ public class TakeItemAction implements DialogAction {
                 }
             }
         }
+        player.getInventory().setChanged();
         player.containerMenu.broadcastChanges();
+        DialogManager.inventories().invalidate(player.getUUID());
+        DialogManager.waits().notify(player.getUUID(), ConditionDependency.inventory(BuiltInRegistries.ITEM.getKey(target).toString()));
+    }
+
+    private Item item(DialogContext context) {
+        Item target = item;
+        if (target == null) {
+            target = ItemIds.resolve(itemId.resolve(context), "take_item");
+            if (itemId.isConstant()) {
+                item = target;
+            }
+        }
+        return target;
     }
 }
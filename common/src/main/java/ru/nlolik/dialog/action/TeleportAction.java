@@ -7,19 +7,19 @@ import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.level.Level;
 import ru.nlolik.dialog.runtime.DialogContext;
-import ru.nlolik.dialog.runtime.PlaceholderEngine;
+import ru.nlolik.dialog.runtime.PlaceholderTemplate;
 
 public class TeleportAction implements DialogAction {
-    private final String dimension;
-    private final String x;
-    private final String y;
-    private final String z;
+    private final PlaceholderTemplate dimension;
+    private final PlaceholderTemplate x;
+    private final PlaceholderTemplate y;
+    private final PlaceholderTemplate z;
 
     public TeleportAction(String dimension, String x, String y, String z) {
-        this.dimension = dimension;
-        this.x = x;
-        this.y = y;
-        this.z = z;
+        this.dimension = PlaceholderTemplate.compile(dimension);
+        this.x = PlaceholderTemplate.compile(x);
+        this.y = PlaceholderTemplate.compile(y);
+        this.z = PlaceholderTemplate.compile(z);
     }
 
     @Override
@@ -27,7 +27,7 @@ public class TeleportAction implements DialogAction {
         ServerPlayer player = context.player();
         ServerLevel level = player.serverLevel();
         if (dimension != null && !dimension.isBlank()) {
-            ResourceLocation id = ResourceLocation.tryParse(PlaceholderEngine.resolve(dimension, context));
+            ResourceLocation id = ResourceLocation.tryParse(dimension.resolve(context));
             if (id != null) {
                 ResourceKey<Level> key = ResourceKey.create(Registries.DIMENSION, id);
                 ServerLevel target = context.server().getLevel(key);
@@ -46,11 +46,11 @@ public class TeleportAction implements DialogAction {
         }
     }
 
-    private double parseCoordinate(String value, double current, DialogContext context) {
+    private double parseCoordinate(PlaceholderTemplate value, double current, DialogContext context) {
         if (value == null || value.isBlank()) {
             return current;
         }
-        String resolved = PlaceholderEngine.resolve(value, context);
+        String resolved = value.resolve(context);
         if (resolved.startsWith("~")) {
             double offset = resolved.length() > 1 ? parseNumber(resolved.substring(1), 0.0) : 0.0;
             return current + offset;
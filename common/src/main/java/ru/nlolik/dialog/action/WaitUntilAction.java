@@ -1,27 +1,61 @@
 package ru.nlolik.dialog.action;
 
+import ru.nlolik.dialog.DialogManager;
+import ru.nlolik.dialog.condition.ConditionDependency;
 import ru.nlolik.dialog.condition.DialogCondition;
 import ru.nlolik.dialog.runtime.DialogContext;
 import ru.nlolik.dialog.runtime.DialogScheduler;
+import ru.nlolik.dialog.runtime.WaitRegistry;
 
-public class WaitUntilAction implements DialogAction {
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+public class WaitUntilAction implements SuspendingAction {
     private final DialogCondition condition;
+    private final String event;
     private final int checkInterval;
     private final int timeout;
 
     public WaitUntilAction(DialogCondition condition, int checkInterval, int timeout) {
+        this(condition, null, checkInterval, timeout);
+    }
+
+    public WaitUntilAction(DialogCondition condition, String event, int checkInterval, int timeout) {
         this.condition = condition;
+        this.event = event == null || event.isBlank() ? null : event;
         this.checkInterval = Math.max(1, checkInterval);
         this.timeout = timeout;
     }
 
     @Override
-    public void execute(DialogContext context) {
-        DialogScheduler scheduler = context.runtime() != null ? context.runtime().scheduler() : null;
-        if (scheduler == null) {
+    public void execute(DialogContext context, Runnable resume, Runnable skip) {
+        if (event == null && condition.test(context)) {
+            resume.run();
             return;
         }
-        scheduler.scheduleRepeating(checkInterval, timeout, () -> condition.test(context), () -> {
-        }, null);
+        Set<ConditionDependency> dependencies = condition.dependencies();
+        int interval = checkInterval;
+        if (dependencies != null) {
+            interval = Math.max(checkInterval, DialogManager.settings().waitFallbackIntervalTicks());
+        }
+        boolean[] eventFired = {event == null};
+        Supplier<Boolean> check = () -> eventFired[0] && condition.test(context);
+        DialogScheduler.Handle handle;
+        if (context.runtime() != null) {
+            handle = context.runtime().nodeTasks().scheduleRepeating(interval, timeout, check, resume, skip);
+        } else {
+            handle = DialogManager.scheduler().scheduleRepeating(interval, timeout, check, resume, skip);
+        }
+        WaitRegistry waits = DialogManager.waits();
+        UUID playerId = context.player().getUUID();
+        if (dependencies != null) {
+            for (ConditionDependency dependency : dependencies) {
+                waits.register(playerId, dependency, handle);
+            }
+        }
+        if (event != null) {
+            waits.register(playerId, ConditionDependency.event(event), handle, () -> eventFired[0] = true);
+        }
     }
 }
@@ -2,15 +2,15 @@ package ru.nlolik.dialog.action;
 
 import net.minecraft.world.level.border.WorldBorder;
 import ru.nlolik.dialog.runtime.DialogContext;
-import ru.nlolik.dialog.runtime.PlaceholderEngine;
+import ru.nlolik.dialog.runtime.PlaceholderTemplate;
 
 public class WorldBorderAction implements DialogAction {
-    private final String size;
-    private final String warningTime;
+    private final PlaceholderTemplate size;
+    private final PlaceholderTemplate warningTime;
 
     public WorldBorderAction(String size, String warningTime) {
-        this.size = size;
-        this.warningTime = warningTime;
+        this.size = PlaceholderTemplate.compile(size);
+        this.warningTime = PlaceholderTemplate.compile(warningTime);
     }
 
     @Override
@@ -18,14 +18,14 @@ public class WorldBorderAction implements DialogAction {
         WorldBorder border = context.player().serverLevel().getWorldBorder();
         if (size != null) {
             try {
-                double newSize = Double.parseDouble(PlaceholderEngine.resolve(size, context));
+                double newSize = Double.parseDouble(size.resolve(context));
                 border.setSize(newSize);
             } catch (NumberFormatException ignored) {
             }
         }
         if (warningTime != null) {
             try {
-                int time = Integer.parseInt(PlaceholderEngine.resolve(warningTime, context));
+                int time = Integer.parseInt(warningTime.resolve(context));
                 border.setWarningTime(time);
             } catch (NumberFormatException ignored) {
             }
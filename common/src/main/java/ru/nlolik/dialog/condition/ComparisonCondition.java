@@ -1,55 +1,105 @@
 package ru.nlolik.dialog.condition;
 
+import ru.nlolik.ChatDialogs;
 import ru.nlolik.dialog.runtime.DialogContext;
-import ru.nlolik.dialog.runtime.PlaceholderEngine;
+
+import java.util.HashSet;
+import java.util.Set;
 
 public class ComparisonCondition implements DialogCondition {
-    private final String left;
-    private final String operator;
-    private final String right;
+    enum Operator {
+        LESS("<"),
+        GREATER(">"),
+        LESS_OR_EQUAL("<="),
+        GREATER_OR_EQUAL(">="),
+        EQUAL("=="),
+        NOT_EQUAL("!=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        static Operator of(String symbol) {
+            if ("=".equals(symbol)) {
+                return EQUAL;
+            }
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final ConditionOperand left;
+    private final Operator operator;
+    private final ConditionOperand right;
+    private final Set<ConditionDependency> dependencies;
 
     public ComparisonCondition(String left, String operator, String right) {
+        this(ConditionOperand.parse(left), Operator.of(operator), ConditionOperand.parse(right));
+        if (this.operator == null) {
+            ChatDialogs.LOGGER.warn("Unknown comparison operator '{}' in condition '{} {} {}'", operator, left, operator, right);
+        }
+    }
+
+    ComparisonCondition(ConditionOperand left, Operator operator, ConditionOperand right) {
         this.left = left;
         this.operator = operator;
         this.right = right;
+        this.dependencies = collectDependencies(left, right);
     }
 
     @Override
     public boolean test(DialogContext context) {
-        String leftValue = resolve(left, context);
-        String rightValue = resolve(right, context);
-        Double leftNumber = parseDouble(leftValue);
-        Double rightNumber = parseDouble(rightValue);
+        if (operator == null) {
+            return false;
+        }
         return switch (operator) {
-            case "<" -> compareNumbers(leftNumber, rightNumber) < 0;
-            case ">" -> compareNumbers(leftNumber, rightNumber) > 0;
-            case "<=" -> compareNumbers(leftNumber, rightNumber) <= 0;
-            case ">=" -> compareNumbers(leftNumber, rightNumber) >= 0;
-            case "==", "=" -> leftValue.equalsIgnoreCase(rightValue);
-            case "!=" -> !leftValue.equalsIgnoreCase(rightValue);
-            default -> false;
+            case LESS -> left.number(context) < right.number(context);
+            case GREATER -> left.number(context) > right.number(context);
+            case LESS_OR_EQUAL -> left.number(context) <= right.number(context);
+            case GREATER_OR_EQUAL -> left.number(context) >= right.number(context);
+            case EQUAL -> equal(context);
+            case NOT_EQUAL -> !equal(context);
         };
     }
 
-    private static String resolve(String value, DialogContext context) {
-        if ((value.startsWith("\"") && value.endsWith("\"")) || (value.startsWith("'") && value.endsWith("'"))) {
-            return value.substring(1, value.length() - 1);
-        }
-        return PlaceholderEngine.resolve(value, context).trim();
+    @Override
+    public Set<ConditionDependency> dependencies() {
+        return dependencies;
     }
 
-    private static Double parseDouble(String value) {
-        try {
-            return Double.parseDouble(value);
-        } catch (NumberFormatException ignored) {
-            return null;
+    boolean constant() {
+        return left.constant() && right.constant();
+    }
+
+    /**
+     * Numbers are equal by value when either side is numeric and both sides parse as numbers;
+     * anything else is compared as text, ignoring case.
+     */
+    private boolean equal(DialogContext context) {
+        if (left.numeric() || right.numeric()) {
+            double leftNumber = left.number(context);
+            double rightNumber = right.number(context);
+            if (leftNumber == leftNumber && rightNumber == rightNumber) {
+                return leftNumber == rightNumber;
+            }
         }
+        return left.text(context).equalsIgnoreCase(right.text(context));
     }
 
-    private static int compareNumbers(Double left, Double right) {
-        if (left == null || right == null) {
-            return 0;
+    private static Set<ConditionDependency> collectDependencies(ConditionOperand left, ConditionOperand right) {
+        Set<ConditionDependency> leftDependencies = left.dependencies();
+        Set<ConditionDependency> rightDependencies = right.dependencies();
+        if (leftDependencies == null || rightDependencies == null) {
+            return null;
         }
-        return Double.compare(left, right);
+        Set<ConditionDependency> combined = new HashSet<>(leftDependencies);
+        combined.addAll(rightDependencies);
+        return Set.copyOf(combined);
     }
 }
@@ -0,0 +1,303 @@
+package ru.nlolik.dialog.condition;
+
+import ru.nlolik.ChatDialogs;
+import ru.nlolik.dialog.runtime.DialogContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiles condition expressions such as {@code {score:kills} >= 10 && !({event.hand} == "OFF_HAND")}
+ * into a condition tree once, when dialogs are loaded.
+ *
+ * <p>Supported are {@code ||}, {@code &&}, {@code !}, parentheses and the comparisons
+ * {@code < > <= >= == != =}. Operands are numbers, quoted strings, {@code true}/{@code false} or
+ * text with placeholders; unquoted text may contain spaces. An operand without a comparison is
+ * true when it reads {@code true} or a non-zero number. Parts that only involve literals are
+ * folded into constants.
+ *
+ * <p>Conditions without any comparison used to pass always. Those made of a placeholder or text
+ * alone, and text that can only ever be false, are logged when dialogs load.
+ */
+final class ConditionCompiler {
+    private final String expression;
+    private final String source;
+    private int position;
+    private boolean bare;
+
+    private ConditionCompiler(String expression, String source) {
+        this.expression = expression;
+        this.source = source;
+    }
+
+    static DialogCondition compile(String expression) {
+        String trimmed = unwrap(expression.trim());
+        if (trimmed.isEmpty()) {
+            throw new ConditionSyntaxException("empty expression", 1);
+        }
+        ConditionCompiler compiler = new ConditionCompiler(expression, trimmed);
+        DialogCondition condition = compiler.parseOr();
+        compiler.skipWhitespace();
+        if (compiler.position < trimmed.length()) {
+            throw compiler.error("unexpected '" + trimmed.charAt(compiler.position) + "'");
+        }
+        if (compiler.bare && condition != DialogCondition.TRUE) {
+            ChatDialogs.LOGGER.warn("Condition '{}' has no comparison; it used to always pass and now passes only when it reads true or a non-zero number", expression);
+        }
+        return condition;
+    }
+
+    /**
+     * Older dialogs wrap the whole comparison in braces, as in {@code {player_level >= 10}}.
+     */
+    private static String unwrap(String expression) {
+        if (expression.length() > 2 && expression.charAt(0) == '{' && expression.indexOf('}') == expression.length() - 1) {
+            String inner = expression.substring(1, expression.length() - 1);
+            for (int i = 0; i < inner.length(); i++) {
+                if ("<>=!&|(".indexOf(inner.charAt(i)) >= 0) {
+                    return inner.trim();
+                }
+            }
+        }
+        return expression;
+    }
+
+    private DialogCondition parseOr() {
+        List<DialogCondition> operands = new ArrayList<>();
+        operands.add(parseAnd());
+        while (consume("||")) {
+            operands.add(parseAnd());
+        }
+        List<DialogCondition> remaining = new ArrayList<>();
+        for (DialogCondition operand : operands) {
+            if (operand == DialogCondition.TRUE) {
+                return DialogCondition.TRUE;
+            }
+            if (operand != DialogCondition.FALSE) {
+                remaining.add(operand);
+            }
+        }
+        if (remaining.isEmpty()) {
+            return DialogCondition.FALSE;
+        }
+        return remaining.size() == 1 ? remaining.get(0) : new OrCondition(remaining);
+    }
+
+    private DialogCondition parseAnd() {
+        List<DialogCondition> operands = new ArrayList<>();
+        operands.add(parseUnary());
+        while (consume("&&")) {
+            operands.add(parseUnary());
+        }
+        List<DialogCondition> remaining = new ArrayList<>();
+        for (DialogCondition operand : operands) {
+            if (operand == DialogCondition.FALSE) {
+                return DialogCondition.FALSE;
+            }
+            if (operand != DialogCondition.TRUE) {
+                remaining.add(operand);
+            }
+        }
+        if (remaining.isEmpty()) {
+            return DialogCondition.TRUE;
+        }
+        return remaining.size() == 1 ? remaining.get(0) : new AndCondition(remaining);
+    }
+
+    private DialogCondition parseUnary() {
+        skipWhitespace();
+        if (peek('!') && !peek("!=")) {
+            position++;
+            DialogCondition operand = parseUnary();
+            if (operand == DialogCondition.TRUE) {
+                return DialogCondition.FALSE;
+            }
+            if (operand == DialogCondition.FALSE) {
+                return DialogCondition.TRUE;
+            }
+            return operand instanceof NotCondition not ? not.condition() : new NotCondition(operand);
+        }
+        if (peek('(')) {
+            int open = position;
+            position++;
+            DialogCondition inner = parseOr();
+            if (!consume(")")) {
+                throw new ConditionSyntaxException("missing ')' for '('", open + 1);
+            }
+            return inner;
+        }
+        return parseComparison();
+    }
+
+    private DialogCondition parseComparison() {
+        skipWhitespace();
+        int start = position;
+        ConditionOperand left = parseOperand();
+        skipWhitespace();
+        int operatorStart = position;
+        ComparisonCondition.Operator operator = parseOperator();
+        if (operator == null) {
+            boolean whole = start == 0 && position == source.length();
+            bare |= whole && !literal(left);
+            return truth(left, whole);
+        }
+        skipWhitespace();
+        if (position >= source.length() || "&|)".indexOf(source.charAt(position)) >= 0) {
+            throw new ConditionSyntaxException("missing value after '" + source.substring(operatorStart, position).trim() + "'", position + 1);
+        }
+        ConditionOperand right = parseOperand();
+        ComparisonCondition comparison = new ComparisonCondition(left, operator, right);
+        if (comparison.constant()) {
+            return comparison.test(null) ? DialogCondition.TRUE : DialogCondition.FALSE;
+        }
+        return comparison;
+    }
+
+    private ComparisonCondition.Operator parseOperator() {
+        for (String symbol : new String[]{"<=", ">=", "==", "!=", "<", ">", "="}) {
+            if (peek(symbol)) {
+                position += symbol.length();
+                return ComparisonCondition.Operator.of(symbol);
+            }
+        }
+        return null;
+    }
+
+    private ConditionOperand parseOperand() {
+        skipWhitespace();
+        if (position >= source.length()) {
+            throw error("missing value");
+        }
+        char first = source.charAt(position);
+        if (first == '"' || first == '\'') {
+            return parseQuoted(first);
+        }
+        int start = position;
+        int depth = 0;
+        while (position < source.length()) {
+            char c = source.charAt(position);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                if (depth == 0) {
+                    throw error("unmatched '}'");
+                }
+                depth--;
+            } else if (depth == 0 && endsOperand(c)) {
+                break;
+            }
+            position++;
+        }
+        if (depth > 0) {
+            throw new ConditionSyntaxException("unclosed placeholder", source.lastIndexOf('{', position - 1) + 1);
+        }
+        String text = source.substring(start, position).trim();
+        if (text.isEmpty()) {
+            throw error("unexpected '" + source.charAt(position) + "'");
+        }
+        return ConditionOperand.parse(text);
+    }
+
+    private boolean endsOperand(char c) {
+        return switch (c) {
+            case '(', ')', '<', '>', '=' -> true;
+            case '!' -> peekAt(position + 1, '=');
+            case '&' -> peekAt(position + 1, '&');
+            case '|' -> peekAt(position + 1, '|');
+            default -> false;
+        };
+    }
+
+    private ConditionOperand parseQuoted(char quote) {
+        int start = position;
+        StringBuilder value = new StringBuilder();
+        position++;
+        while (position < source.length()) {
+            char c = source.charAt(position++);
+            if (c == '\\' && position < source.length()) {
+                value.append(source.charAt(position++));
+            } else if (c == quote) {
+                return ConditionOperand.text(value.toString());
+            } else {
+                value.append(c);
+            }
+        }
+        throw new ConditionSyntaxException("unterminated string", start + 1);
+    }
+
+    /**
+     * Condition for an operand without a comparison. Text that is not a {@link #literal} is always
+     * false, which is reported here unless it is the whole expression; that case is reported by
+     * {@link #compile(String)}.
+     */
+    private DialogCondition truth(ConditionOperand operand, boolean whole) {
+        if (operand.constant()) {
+            boolean value = operand.truthy(null);
+            if (!value && !whole && !literal(operand)) {
+                ChatDialogs.LOGGER.warn("Condition '{}': '{}' is not a comparison, a number or true/false, so it is always false", expression, operand.text((DialogContext) null));
+            }
+            return value ? DialogCondition.TRUE : DialogCondition.FALSE;
+        }
+        return new DialogCondition() {
+            @Override
+            public boolean test(DialogContext context) {
+                return operand.truthy(context);
+            }
+
+            @Override
+            public Set<ConditionDependency> dependencies() {
+                return operand.dependencies();
+            }
+        };
+    }
+
+    /**
+     * Returns whether the operand is a number or {@code true}/{@code false}, which mean the same
+     * with or without a comparison.
+     */
+    private static boolean literal(ConditionOperand operand) {
+        if (!operand.constant()) {
+            return false;
+        }
+        String text = operand.text((DialogContext) null);
+        return !Double.isNaN(operand.number(null)) || text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false");
+    }
+
+    private boolean consume(String token) {
+        skipWhitespace();
+        if (peek(token)) {
+            position += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean peek(String token) {
+        return source.startsWith(token, position);
+    }
+
+    private boolean peek(char c) {
+        return peekAt(position, c);
+    }
+
+    private boolean peekAt(int index, char c) {
+        return index < source.length() && source.charAt(index) == c;
+    }
+
+    private void skipWhitespace() {
+        while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+            position++;
+        }
+    }
+
+    private ConditionSyntaxException error(String message) {
+        return new ConditionSyntaxException(message, position + 1);
+    }
+
+    static final class ConditionSyntaxException extends IllegalArgumentException {
+        ConditionSyntaxException(String message, int column) {
+            super(message + " at column " + column);
+        }
+    }
+}
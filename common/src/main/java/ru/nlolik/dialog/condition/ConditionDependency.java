@@ -0,0 +1,42 @@
+package ru.nlolik.dialog.condition;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+public record ConditionDependency(Kind kind, String key) {
+    public enum Kind {
+        SCORE,
+        INVENTORY,
+        EVENT
+    }
+
+    public static ConditionDependency score(String objective) {
+        return new ConditionDependency(Kind.SCORE, objective);
+    }
+
+    public static ConditionDependency inventory(String itemId) {
+        return new ConditionDependency(Kind.INVENTORY, itemId);
+    }
+
+    public static ConditionDependency event(String name) {
+        return new ConditionDependency(Kind.EVENT, name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Combines the dependencies of several conditions, or returns {@code null} if any of them is
+     * opaque.
+     */
+    public static Set<ConditionDependency> union(Collection<DialogCondition> conditions) {
+        Set<ConditionDependency> combined = new HashSet<>();
+        for (DialogCondition condition : conditions) {
+            Set<ConditionDependency> dependencies = condition.dependencies();
+            if (dependencies == null) {
+                return null;
+            }
+            combined.addAll(dependencies);
+        }
+        return Set.copyOf(combined);
+    }
+}
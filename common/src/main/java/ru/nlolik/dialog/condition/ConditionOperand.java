@@ -0,0 +1,209 @@
+package ru.nlolik.dialog.condition;
+
+import ru.nlolik.dialog.DialogManager;
+import ru.nlolik.dialog.runtime.DialogContext;
+import ru.nlolik.dialog.runtime.NumericResolver;
+import ru.nlolik.dialog.runtime.PlaceholderEngine;
+import ru.nlolik.dialog.runtime.PlaceholderTemplate;
+
+import java.util.Set;
+
+/**
+ * One side of a comparison. Numeric literals and numeric placeholders are read as {@code double}
+ * without building a string; other values are resolved as text and parsed only when they are
+ * compared with a number.
+ */
+abstract class ConditionOperand {
+    abstract String text(DialogContext context);
+
+    /**
+     * Returns the operand as a number, or {@code NaN} when its value is not numeric.
+     */
+    abstract double number(DialogContext context);
+
+    abstract boolean numeric();
+
+    abstract boolean constant();
+
+    abstract Set<ConditionDependency> dependencies();
+
+    boolean truthy(DialogContext context) {
+        if (numeric()) {
+            double value = number(context);
+            return value == value && value != 0;
+        }
+        String text = text(context);
+        if (text.equalsIgnoreCase("true")) {
+            return true;
+        }
+        double value = parseNumber(text);
+        return value == value && value != 0;
+    }
+
+    static ConditionOperand parse(String raw) {
+        String value = raw.trim();
+        if (value.length() >= 2 && (value.startsWith("\"") && value.endsWith("\"") || value.startsWith("'") && value.endsWith("'"))) {
+            return text(value.substring(1, value.length() - 1));
+        }
+        double number = parseNumber(value);
+        if (number == number) {
+            return new Constant(value, number, true);
+        }
+        if (value.length() > 2 && value.charAt(0) == '{' && value.indexOf('}') == value.length() - 1) {
+            String key = value.substring(1, value.length() - 1);
+            NumericResolver resolver = DialogManager.placeholders().bindNumber(key);
+            if (resolver != null) {
+                return new Numeric(PlaceholderTemplate.compile(value), resolver);
+            }
+        }
+        PlaceholderTemplate template = PlaceholderTemplate.compile(value);
+        return template.isConstant() ? text(value) : new Text(template);
+    }
+
+    static ConditionOperand text(String value) {
+        return new Constant(value, parseNumber(value.trim()), false);
+    }
+
+    /**
+     * Parses a decimal number without throwing, returning {@code NaN} for anything else. Plain
+     * integers are handled without {@link Double#parseDouble(String)}.
+     */
+    static double parseNumber(String value) {
+        int length = value.length();
+        if (length == 0 || length > 32) {
+            return Double.NaN;
+        }
+        int start = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+        if (start == length) {
+            return Double.NaN;
+        }
+        boolean plain = length - start <= 18;
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                continue;
+            }
+            if (c != '.' && c != 'e' && c != 'E' && c != '-' && c != '+') {
+                return Double.NaN;
+            }
+            plain = false;
+        }
+        if (plain) {
+            long result = 0;
+            for (int i = start; i < length; i++) {
+                result = result * 10 + (value.charAt(i) - '0');
+            }
+            return start == 1 && value.charAt(0) == '-' ? -result : result;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ignored) {
+            return Double.NaN;
+        }
+    }
+
+    private static final class Constant extends ConditionOperand {
+        private final String text;
+        private final double number;
+        private final boolean numeric;
+
+        Constant(String text, double number, boolean numeric) {
+            this.text = text;
+            this.number = number;
+            this.numeric = numeric;
+        }
+
+        @Override
+        String text(DialogContext context) {
+            return text;
+        }
+
+        @Override
+        double number(DialogContext context) {
+            return number;
+        }
+
+        @Override
+        boolean numeric() {
+            return numeric;
+        }
+
+        @Override
+        boolean constant() {
+            return true;
+        }
+
+        @Override
+        Set<ConditionDependency> dependencies() {
+            return Set.of();
+        }
+    }
+
+    private static final class Numeric extends ConditionOperand {
+        private final PlaceholderTemplate template;
+        private final NumericResolver resolver;
+
+        Numeric(PlaceholderTemplate template, NumericResolver resolver) {
+            this.template = template;
+            this.resolver = resolver;
+        }
+
+        @Override
+        String text(DialogContext context) {
+            return NumericResolver.format(resolver.resolveNumber(context));
+        }
+
+        @Override
+        double number(DialogContext context) {
+            return resolver.resolveNumber(context);
+        }
+
+        @Override
+        boolean numeric() {
+            return true;
+        }
+
+        @Override
+        boolean constant() {
+            return false;
+        }
+
+        @Override
+        Set<ConditionDependency> dependencies() {
+            return PlaceholderEngine.dependencies(template);
+        }
+    }
+
+    private static final class Text extends ConditionOperand {
+        private final PlaceholderTemplate template;
+
+        Text(PlaceholderTemplate template) {
+            this.template = template;
+        }
+
+        @Override
+        String text(DialogContext context) {
+            return template.resolve(context).trim();
+        }
+
+        @Override
+        double number(DialogContext context) {
+            return parseNumber(text(context));
+        }
+
+        @Override
+        boolean numeric() {
+            return false;
+        }
+
+        @Override
+        boolean constant() {
+            return false;
+        }
+
+        @Override
+        Set<ConditionDependency> dependencies() {
+            return PlaceholderEngine.dependencies(template);
+        }
+    }
+}
@@ -2,9 +2,41 @@ package ru.nlolik.dialog.condition;
 
 import ru.nlolik.dialog.runtime.DialogContext;
 
+import java.util.Set;
+
 @FunctionalInterface
 public interface DialogCondition {
     boolean test(DialogContext context);
 
-    DialogCondition TRUE = context -> true;
+    /**
+     * Returns the changes that can flip the result of this condition, or {@code null} when the
+     * condition is opaque and has to be polled.
+     */
+    default Set<ConditionDependency> dependencies() {
+        return null;
+    }
+
+    DialogCondition TRUE = new DialogCondition() {
+        @Override
+        public boolean test(DialogContext context) {
+            return true;
+        }
+
+        @Override
+        public Set<ConditionDependency> dependencies() {
+            return Set.of();
+        }
+    };
+
+    DialogCondition FALSE = new DialogCondition() {
+        @Override
+        public boolean test(DialogContext context) {
+            return false;
+        }
+
+        @Override
+        public Set<ConditionDependency> dependencies() {
+            return Set.of();
+        }
+    };
 }
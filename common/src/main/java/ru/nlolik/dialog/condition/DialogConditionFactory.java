@@ -3,6 +3,7 @@ package ru.nlolik.dialog.condition;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import net.minecraft.resources.ResourceLocation;
+import ru.nlolik.ChatDialogs;
 
 public final class DialogConditionFactory {
     private DialogConditionFactory() {
@@ -49,19 +50,11 @@ public final class DialogConditionFactory {
     }
 
     private static DialogCondition parseExpression(String expression) {
-        String trimmed = expression.trim();
-        if (trimmed.startsWith("{") && trimmed.endsWith("}")) {
-            trimmed = trimmed.substring(1, trimmed.length() - 1);
+        try {
+            return ConditionCompiler.compile(expression);
+        } catch (ConditionCompiler.ConditionSyntaxException e) {
+            ChatDialogs.LOGGER.warn("Invalid condition '{}': {}; it will always be false", expression, e.getMessage());
+            return DialogCondition.FALSE;
         }
-        String[] operators = {"<=", ">=", "==", "!=", "<", ">"};
-        for (String op : operators) {
-            int index = trimmed.indexOf(op);
-            if (index > 0) {
-                String left = trimmed.substring(0, index).trim();
-                String right = trimmed.substring(index + op.length()).trim();
-                return new ComparisonCondition(left, op, right);
-            }
-        }
-        return DialogCondition.TRUE;
     }
 }
@@ -2,37 +2,57 @@ package ru.nlolik.dialog.condition;
 
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.ResourceLocation;
-import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.item.Item;
-import net.minecraft.world.item.ItemStack;
+import ru.nlolik.ChatDialogs;
+import ru.nlolik.dialog.DialogManager;
 import ru.nlolik.dialog.runtime.DialogContext;
 
+import java.util.Set;
+
+/**
+ * Checks that the player holds at least {@code count} of an item. The item is looked up on first
+ * use rather than at parse time, since dialogs may load before other mods register their items.
+ */
 public class InventoryCondition implements DialogCondition {
     private final ResourceLocation itemId;
     private final int count;
+    private final Set<ConditionDependency> dependencies;
+    private volatile Item item;
+    private volatile boolean warned;
 
     public InventoryCondition(ResourceLocation itemId, int count) {
         this.itemId = itemId;
         this.count = count;
+        this.dependencies = Set.of(ConditionDependency.inventory(itemId.toString()));
     }
 
     @Override
     public boolean test(DialogContext context) {
-        Item item = BuiltInRegistries.ITEM.get(itemId);
-        if (item == null) {
+        Item target = item();
+        if (target == null) {
             return false;
         }
-        ServerPlayer player = context.player();
-        int found = 0;
-        for (int i = 0; i < player.getInventory().getContainerSize(); i++) {
-            ItemStack stack = player.getInventory().getItem(i);
-            if (!stack.isEmpty() && stack.is(item)) {
-                found += stack.getCount();
-                if (found >= count) {
-                    return true;
+        return count <= 0 || DialogManager.inventories().count(context.player(), target) >= count;
+    }
+
+    private Item item() {
+        Item target = item;
+        if (target == null) {
+            target = BuiltInRegistries.ITEM.getOptional(itemId).orElse(null);
+            if (target == null) {
+                if (!warned) {
+                    warned = true;
+                    ChatDialogs.LOGGER.warn("Unknown item '{}' in inventory condition", itemId);
                 }
+                return null;
             }
+            item = target;
         }
-        return count <= 0;
+        return target;
+    }
+
+    @Override
+    public Set<ConditionDependency> dependencies() {
+        return dependencies;
     }
 }
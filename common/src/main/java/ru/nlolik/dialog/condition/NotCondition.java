@@ -0,0 +1,27 @@
+package ru.nlolik.dialog.condition;
+
+import ru.nlolik.dialog.runtime.DialogContext;
+
+import java.util.Set;
+
+public class NotCondition implements DialogCondition {
+    private final DialogCondition condition;
+
+    public NotCondition(DialogCondition condition) {
+        this.condition = condition;
+    }
+
+    @Override
+    public boolean test(DialogContext context) {
+        return !condition.test(context);
+    }
+
+    @Override
+    public Set<ConditionDependency> dependencies() {
+        return condition.dependencies();
+    }
+
+    DialogCondition condition() {
+        return condition;
+    }
+}
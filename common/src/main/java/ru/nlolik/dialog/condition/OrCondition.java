@@ -0,0 +1,31 @@
+package ru.nlolik.dialog.condition;
+
+import ru.nlolik.dialog.runtime.DialogContext;
+
+import java.util.List;
+import java.util.Set;
+
+public class OrCondition implements DialogCondition {
+    private final DialogCondition[] conditions;
+    private final Set<ConditionDependency> dependencies;
+
+    public OrCondition(List<DialogCondition> conditions) {
+        this.conditions = conditions.toArray(DialogCondition[]::new);
+        this.dependencies = ConditionDependency.union(conditions);
+    }
+
+    @Override
+    public boolean test(DialogContext context) {
+        for (DialogCondition condition : conditions) {
+            if (condition.test(context)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Set<ConditionDependency> dependencies() {
+        return dependencies;
+    }
+}
@@ -4,13 +4,17 @@ import net.minecraft.world.scores.Objective;
 import net.minecraft.world.scores.Scoreboard;
 import ru.nlolik.dialog.runtime.DialogContext;
 
+import java.util.Set;
+
 public class ScoreCondition implements DialogCondition {
     private final String objectiveName;
     private final ComparisonCondition comparison;
+    private final Set<ConditionDependency> dependencies;
 
     public ScoreCondition(String objectiveName, String operator, String value) {
         this.objectiveName = objectiveName;
-        this.comparison = new ComparisonCondition("score:" + objectiveName, operator, value);
+        this.comparison = new ComparisonCondition("{score:" + objectiveName + "}", operator, value);
+        this.dependencies = Set.of(ConditionDependency.score(objectiveName));
     }
 
     @Override
@@ -22,4 +26,9 @@ public class ScoreCondition implements DialogCondition {
         }
         return comparison.test(context);
     }
+
+    @Override
+    public Set<ConditionDependency> dependencies() {
+        return dependencies;
+    }
 }
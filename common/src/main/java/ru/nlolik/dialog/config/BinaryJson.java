@@ -0,0 +1,535 @@
+package ru.nlolik.dialog.config;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact binary form of one JSON value, used by the dialog cache and for the snapshots of lazily
+ * loaded nodes. An encoded value starts with a table of its keys and string values and refers to
+ * them by index; numbers are kept in their source text and integers are varints. It is read back
+ * through a {@link JsonReader}, so the dialog parser reads it like JSON text.
+ */
+public final class BinaryJson {
+    private static final byte NULL = 0;
+    private static final byte OBJECT = 1;
+    private static final byte ARRAY = 2;
+    private static final byte STRING = 3;
+    private static final byte NUMBER = 4;
+    private static final byte TRUE = 5;
+    private static final byte FALSE = 6;
+    private static final byte END = 7;
+
+    private BinaryJson() {
+    }
+
+    /**
+     * Encoding of an empty document.
+     */
+    public static byte[] empty() {
+        return new byte[]{0};
+    }
+
+    /**
+     * Encodes the next value of {@code reader}.
+     */
+    public static byte[] encode(JsonReader reader) throws IOException {
+        Recorder recorder = new Recorder(reader);
+        recorder.skipValue();
+        return recorder.encoded();
+    }
+
+    /**
+     * Reader that passes {@code source} through and encodes everything read from it, so a value can
+     * be parsed and kept in encoded form in one pass. Errors carry the position in {@code source}.
+     */
+    public static Recorder record(JsonReader source) {
+        return new Recorder(source);
+    }
+
+    /**
+     * Reader over an encoded value. Each reader has its own position, so one buffer may be read by
+     * several threads at once.
+     */
+    public static JsonReader reader(ByteBuffer encoded) {
+        return new TreeReader(encoded.slice());
+    }
+
+    public static JsonReader reader(byte[] encoded) {
+        return new TreeReader(ByteBuffer.wrap(encoded));
+    }
+
+    private static int index(Map<String, Integer> table, String value) {
+        Integer existing = table.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        int index = table.size();
+        table.put(value, index);
+        return index;
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int varInt(ByteBuffer buffer) {
+        long value = varLong(buffer);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Length out of range");
+        }
+        return (int) value;
+    }
+
+    private static long varLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = buffer.get();
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0 && shift < 64);
+        return value;
+    }
+
+    /**
+     * See {@link #record(JsonReader)}. Skipped values are read through and encoded as well.
+     */
+    public static final class Recorder extends JsonReader {
+        private final JsonReader source;
+        private final Map<String, Integer> table = new LinkedHashMap<>();
+        private final ByteArrayOutputStream tree = new ByteArrayOutputStream(256);
+
+        private Recorder(JsonReader source) {
+            super(TreeReader.UNREADABLE);
+            this.source = source;
+        }
+
+        /**
+         * Encoding of what has been read so far, which should be exactly one value.
+         */
+        public byte[] encoded() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(tree.size() + table.size() * 8 + 8);
+            writeVarLong(out, table.size());
+            for (String string : table.keySet()) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, bytes.length);
+                out.write(bytes);
+            }
+            tree.writeTo(out);
+            return out.toByteArray();
+        }
+
+        @Override
+        public JsonToken peek() throws IOException {
+            return source.peek();
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            return source.hasNext();
+        }
+
+        @Override
+        public void beginObject() throws IOException {
+            source.beginObject();
+            tree.write(OBJECT);
+        }
+
+        @Override
+        public void endObject() throws IOException {
+            source.endObject();
+            tree.write(0);
+        }
+
+        @Override
+        public void beginArray() throws IOException {
+            source.beginArray();
+            tree.write(ARRAY);
+        }
+
+        @Override
+        public void endArray() throws IOException {
+            source.endArray();
+            tree.write(END);
+        }
+
+        @Override
+        public String nextName() throws IOException {
+            String name = source.nextName();
+            writeVarLong(tree, index(table, name) + 1L);
+            return name;
+        }
+
+        @Override
+        public String nextString() throws IOException {
+            JsonToken token = source.peek();
+            String value = source.nextString();
+            tree.write(token == JsonToken.NUMBER ? NUMBER : STRING);
+            writeVarLong(tree, index(table, value));
+            return value;
+        }
+
+        @Override
+        public boolean nextBoolean() throws IOException {
+            boolean value = source.nextBoolean();
+            tree.write(value ? TRUE : FALSE);
+            return value;
+        }
+
+        @Override
+        public void nextNull() throws IOException {
+            source.nextNull();
+            tree.write(NULL);
+        }
+
+        @Override
+        public double nextDouble() throws IOException {
+            return Double.parseDouble(nextString());
+        }
+
+        @Override
+        public long nextLong() throws IOException {
+            String value = nextString();
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                double number = Double.parseDouble(value);
+                if ((long) number != number) {
+                    throw new NumberFormatException("Expected a long but was " + value + " at " + getPath());
+                }
+                return (long) number;
+            }
+        }
+
+        @Override
+        public int nextInt() throws IOException {
+            long value = nextLong();
+            if ((int) value != value) {
+                throw new NumberFormatException("Expected an int but was " + value + " at " + getPath());
+            }
+            return (int) value;
+        }
+
+        @Override
+        public void skipValue() throws IOException {
+            switch (peek()) {
+                case NAME -> {
+                    nextName();
+                    skipValue();
+                }
+                case BEGIN_OBJECT -> {
+                    beginObject();
+                    while (hasNext()) {
+                        nextName();
+                        skipValue();
+                    }
+                    endObject();
+                }
+                case BEGIN_ARRAY -> {
+                    beginArray();
+                    while (hasNext()) {
+                        skipValue();
+                    }
+                    endArray();
+                }
+                case END_OBJECT -> endObject();
+                case END_ARRAY -> endArray();
+                case STRING, NUMBER -> nextString();
+                case BOOLEAN -> nextBoolean();
+                case NULL -> nextNull();
+                case END_DOCUMENT -> {
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String getPath() {
+            return source.getPath();
+        }
+
+        @Override
+        public String getPreviousPath() {
+            return source.getPreviousPath();
+        }
+
+        @Override
+        public String toString() {
+            return source.toString();
+        }
+    }
+
+    /**
+     * {@link JsonReader} over one encoded tree. Objects end with a zero where the next key index
+     * would be, arrays with {@link #END}.
+     */
+    private static final class TreeReader extends JsonReader {
+        private static final Reader UNREADABLE = new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                throw new AssertionError();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        private final ByteBuffer buffer;
+        private final String[] strings;
+        private boolean[] objects = new boolean[32];
+        private boolean[] named = new boolean[32];
+        private String[] names = new String[32];
+        private int[] indices = new int[32];
+        private int depth;
+        private boolean finished;
+
+        TreeReader(ByteBuffer buffer) {
+            super(UNREADABLE);
+            this.buffer = buffer;
+            this.strings = new String[varInt(buffer)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[varInt(buffer)];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            this.finished = !buffer.hasRemaining();
+        }
+
+        @Override
+        public JsonToken peek() {
+            if (depth == 0 && finished) {
+                return JsonToken.END_DOCUMENT;
+            }
+            if (depth > 0 && objects[depth] && !named[depth]) {
+                return buffer.get(buffer.position()) == 0 ? JsonToken.END_OBJECT : JsonToken.NAME;
+            }
+            return switch (buffer.get(buffer.position())) {
+                case OBJECT -> JsonToken.BEGIN_OBJECT;
+                case ARRAY -> JsonToken.BEGIN_ARRAY;
+                case STRING -> JsonToken.STRING;
+                case NUMBER -> JsonToken.NUMBER;
+                case TRUE, FALSE -> JsonToken.BOOLEAN;
+                case NULL -> JsonToken.NULL;
+                case END -> JsonToken.END_ARRAY;
+                default -> throw new IllegalStateException("Damaged encoded JSON at " + getPath());
+            };
+        }
+
+        @Override
+        public boolean hasNext() {
+            JsonToken token = peek();
+            return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY && token != JsonToken.END_DOCUMENT;
+        }
+
+        @Override
+        public void beginObject() {
+            expect(JsonToken.BEGIN_OBJECT);
+            buffer.get();
+            push(true);
+        }
+
+        @Override
+        public void endObject() {
+            expect(JsonToken.END_OBJECT);
+            buffer.get();
+            depth--;
+            consumed();
+        }
+
+        @Override
+        public void beginArray() {
+            expect(JsonToken.BEGIN_ARRAY);
+            buffer.get();
+            push(false);
+        }
+
+        @Override
+        public void endArray() {
+            expect(JsonToken.END_ARRAY);
+            buffer.get();
+            depth--;
+            consumed();
+        }
+
+        @Override
+        public String nextName() {
+            expect(JsonToken.NAME);
+            String name = strings[varInt(buffer) - 1];
+            names[depth] = name;
+            named[depth] = true;
+            return name;
+        }
+
+        @Override
+        public String nextString() {
+            JsonToken token = peek();
+            if (token != JsonToken.STRING && token != JsonToken.NUMBER) {
+                throw new IllegalStateException("Expected a string but was " + token + " at " + getPath());
+            }
+            buffer.get();
+            String value = strings[varInt(buffer)];
+            consumed();
+            return value;
+        }
+
+        @Override
+        public boolean nextBoolean() {
+            expect(JsonToken.BOOLEAN);
+            boolean value = buffer.get() == TRUE;
+            consumed();
+            return value;
+        }
+
+        @Override
+        public void nextNull() {
+            expect(JsonToken.NULL);
+            buffer.get();
+            consumed();
+        }
+
+        @Override
+        public double nextDouble() {
+            return Double.parseDouble(nextString());
+        }
+
+        @Override
+        public long nextLong() {
+            String value = nextString();
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                double number = Double.parseDouble(value);
+                if ((long) number != number) {
+                    throw new NumberFormatException("Expected a long but was " + value + " at " + getPath());
+                }
+                return (long) number;
+            }
+        }
+
+        @Override
+        public int nextInt() {
+            long value = nextLong();
+            if ((int) value != value) {
+                throw new NumberFormatException("Expected an int but was " + value + " at " + getPath());
+            }
+            return (int) value;
+        }
+
+        @Override
+        public void skipValue() {
+            JsonToken token = peek();
+            switch (token) {
+                case NAME -> {
+                    nextName();
+                    skipValue();
+                }
+                case END_OBJECT -> endObject();
+                case END_ARRAY -> endArray();
+                case END_DOCUMENT -> {
+                }
+                default -> {
+                    skip();
+                    consumed();
+                }
+            }
+        }
+
+        private void skip() {
+            switch (buffer.get()) {
+                case STRING, NUMBER -> varLong(buffer);
+                case OBJECT -> {
+                    while (varLong(buffer) != 0) {
+                        skip();
+                    }
+                }
+                case ARRAY -> {
+                    while (buffer.get(buffer.position()) != END) {
+                        skip();
+                    }
+                    buffer.get();
+                }
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String getPath() {
+            StringBuilder path = new StringBuilder("$");
+            for (int i = 1; i <= depth; i++) {
+                if (objects[i]) {
+                    path.append('.').append(names[i] == null ? "" : names[i]);
+                } else {
+                    path.append('[').append(indices[i]).append(']');
+                }
+            }
+            return path.toString();
+        }
+
+        @Override
+        public String getPreviousPath() {
+            return getPath();
+        }
+
+        @Override
+        public String toString() {
+            return "BinaryJson at path " + getPath();
+        }
+
+        private void expect(JsonToken expected) {
+            JsonToken token = peek();
+            if (token != expected) {
+                throw new IllegalStateException("Expected " + expected + " but was " + token + " at " + getPath());
+            }
+        }
+
+        private void push(boolean object) {
+            if (++depth == objects.length) {
+                objects = Arrays.copyOf(objects, depth * 2);
+                named = Arrays.copyOf(named, depth * 2);
+                names = Arrays.copyOf(names, depth * 2);
+                indices = Arrays.copyOf(indices, depth * 2);
+            }
+            objects[depth] = object;
+            named[depth] = false;
+            names[depth] = null;
+            indices[depth] = 0;
+        }
+
+        /**
+         * Marks the value at the current level as read.
+         */
+        private void consumed() {
+            if (depth == 0) {
+                finished = true;
+            } else if (objects[depth]) {
+                named[depth] = false;
+            } else {
+                indices[depth]++;
+            }
+        }
+    }
+}
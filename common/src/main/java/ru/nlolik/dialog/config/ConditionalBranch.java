@@ -11,6 +11,7 @@ public class ConditionalBranch {
         ELIF,
         ELSE
     }
+    private int nextIndex = DialogNode.NONE;
 
     private final Type type;
     private final DialogCondition condition;
@@ -39,4 +40,12 @@ public class ConditionalBranch {
     public String nextNode() {
         return nextNode;
     }
+
+    public int nextIndex() {
+        return nextIndex;
+    }
+
+    void link(int nextIndex) {
+        this.nextIndex = nextIndex;
+    }
 }
@@ -0,0 +1,27 @@
+package ru.nlolik.dialog.config;
+
+/**
+ * Per-player rate limit of a button, trigger or dialog. After a use, {@code cooldownTicks} must
+ * pass before the next one. With {@code debounceTicks}, every blocked attempt also pushes the
+ * next allowed use back, so a stream of repeated events only fires once until it pauses.
+ * {@code key} identifies the limited element in the cooldown store.
+ */
+public record Cooldown(String key, int cooldownTicks, int debounceTicks) {
+    public static final Cooldown NONE = new Cooldown(null, 0, 0);
+
+    public Cooldown {
+        cooldownTicks = Math.max(0, cooldownTicks);
+        debounceTicks = Math.max(0, debounceTicks);
+    }
+
+    public boolean isNone() {
+        return key == null || cooldownTicks == 0 && debounceTicks == 0;
+    }
+
+    public Cooldown withKey(String key) {
+        if (cooldownTicks == 0 && debounceTicks == 0) {
+            return NONE;
+        }
+        return new Cooldown(key, cooldownTicks, debounceTicks);
+    }
+}
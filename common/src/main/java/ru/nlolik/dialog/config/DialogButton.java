@@ -2,18 +2,22 @@ package ru.nlolik.dialog.config;
 
 import ru.nlolik.dialog.action.DialogAction;
 import ru.nlolik.dialog.condition.DialogCondition;
+import ru.nlolik.dialog.runtime.PlaceholderTemplate;
 
 import java.util.List;
 
 public class DialogButton {
     private final String id;
     private final String text;
+    private final PlaceholderTemplate textTemplate;
     private final DialogTextStyle style;
     private final List<DialogAction> actions;
     private final String nextNode;
     private final List<DialogCondition> conditions;
     private final boolean closesDialog;
     private final int delayTicks;
+    private Cooldown cooldown;
+    private int nextIndex = DialogNode.NONE;
 
     public DialogButton(String id,
                         String text,
@@ -23,14 +27,28 @@ public class DialogButton {
                         List<DialogCondition> conditions,
                         boolean closesDialog,
                         int delayTicks) {
+        this(id, text, style, actions, nextNode, conditions, closesDialog, delayTicks, Cooldown.NONE);
+    }
+
+    public DialogButton(String id,
+                        String text,
+                        DialogTextStyle style,
+                        List<DialogAction> actions,
+                        String nextNode,
+                        List<DialogCondition> conditions,
+                        boolean closesDialog,
+                        int delayTicks,
+                        Cooldown cooldown) {
         this.id = id;
         this.text = text;
+        this.textTemplate = PlaceholderTemplate.compile(text == null ? "" : text);
         this.style = style;
         this.actions = List.copyOf(actions);
         this.nextNode = nextNode;
         this.conditions = List.copyOf(conditions);
         this.closesDialog = closesDialog;
         this.delayTicks = Math.max(0, delayTicks);
+        this.cooldown = cooldown;
     }
 
     public String id() {
@@ -41,6 +59,10 @@ public class DialogButton {
         return text;
     }
 
+    public PlaceholderTemplate textTemplate() {
+        return textTemplate;
+    }
+
     public DialogTextStyle style() {
         return style;
     }
@@ -53,6 +75,10 @@ public class DialogButton {
         return nextNode;
     }
 
+    public int nextIndex() {
+        return nextIndex;
+    }
+
     public List<DialogCondition> conditions() {
         return conditions;
     }
@@ -64,4 +90,13 @@ public class DialogButton {
     public int delayTicks() {
         return delayTicks;
     }
+
+    public Cooldown cooldown() {
+        return cooldown;
+    }
+
+    void link(int nextIndex, String cooldownKey) {
+        this.nextIndex = nextIndex;
+        this.cooldown = cooldown.withKey(cooldownKey);
+    }
 }
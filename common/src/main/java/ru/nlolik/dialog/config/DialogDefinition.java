@@ -12,7 +12,42 @@ public record DialogDefinition(
         String startNode,
         int initialDelay,
         Map<String, DialogNode> nodes,
-        List<DialogEventTrigger> triggers) {
+        List<DialogEventTrigger> triggers,
+        Cooldown cooldown,
+        List<DialogNode> nodeList) {
+
+    public DialogDefinition(String id,
+                            String displayName,
+                            String sourceName,
+                            String startNode,
+                            int initialDelay,
+                            Map<String, DialogNode> nodes,
+                            List<DialogEventTrigger> triggers) {
+        this(id, displayName, sourceName, startNode, initialDelay, nodes, triggers, Cooldown.NONE);
+    }
+
+    public DialogDefinition(String id,
+                            String displayName,
+                            String sourceName,
+                            String startNode,
+                            int initialDelay,
+                            Map<String, DialogNode> nodes,
+                            List<DialogEventTrigger> triggers,
+                            Cooldown cooldown) {
+        this(id, displayName, sourceName, startNode, initialDelay, nodes, triggers, cooldown, List.copyOf(nodes.values()));
+    }
+
+    public DialogNode node(int index) {
+        if (index < 0 || index >= nodeList.size()) {
+            return null;
+        }
+        return nodeList.get(index);
+    }
+
+    public int nodeIndex(String nodeId) {
+        DialogNode node = nodeId == null ? null : nodes.get(nodeId);
+        return node == null ? DialogNode.MISSING : node.index();
+    }
 
     public DialogNode node(String nodeId) {
         DialogNode node = nodes.get(nodeId);
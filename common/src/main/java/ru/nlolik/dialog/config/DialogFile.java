@@ -1,40 +1,51 @@
 package ru.nlolik.dialog.config;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.EOFException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 public record DialogFile(String source, List<DialogDefinition> dialogs) {
 
-    public static DialogFile parse(JsonElement root, String source) {
+    /**
+     * Reads a whole dialog file: an array of dialogs, an object with a {@code dialogs} array, or a
+     * single dialog object. An empty file holds no dialogs. With {@code lazyNodes}, nodes are built
+     * on first entry after being checked here.
+     */
+    public static DialogFile parse(JsonReader reader, String source, boolean lazyNodes) throws IOException {
         List<DialogDefinition> definitions = new ArrayList<>();
-        if (root == null || root.isJsonNull()) {
+        JsonToken root;
+        try {
+            root = reader.peek();
+        } catch (EOFException e) {
+            return new DialogFile(source, definitions);
+        }
+        if (root == JsonToken.END_DOCUMENT) {
             return new DialogFile(source, definitions);
         }
 
-        if (root.isJsonArray()) {
-            JsonArray array = root.getAsJsonArray();
-            for (JsonElement element : array) {
-                if (element.isJsonObject()) {
-                    definitions.add(DialogJsonParser.parseDefinition(element.getAsJsonObject(), source));
+        if (root == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    definitions.add(DialogJsonParser.parseDefinition(reader, source, lazyNodes));
+                } else {
+                    reader.skipValue();
                 }
             }
-        } else if (root.isJsonObject()) {
-            JsonObject object = root.getAsJsonObject();
-            if (object.has("dialogs") && object.get("dialogs").isJsonArray()) {
-                JsonArray array = object.getAsJsonArray("dialogs");
-                for (JsonElement element : array) {
-                    if (element.isJsonObject()) {
-                        definitions.add(DialogJsonParser.parseDefinition(element.getAsJsonObject(), source));
-                    }
-                }
-            } else {
-                definitions.add(DialogJsonParser.parseDefinition(object, source));
-            }
+            reader.endArray();
+        } else if (root == JsonToken.BEGIN_OBJECT) {
+            definitions.addAll(DialogJsonParser.parseDefinitions(reader, source, lazyNodes));
+        } else {
+            reader.skipValue();
+        }
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonSyntaxException("Did not consume the entire document at path " + reader.getPath());
         }
 
         return new DialogFile(source, Collections.unmodifiableList(definitions));
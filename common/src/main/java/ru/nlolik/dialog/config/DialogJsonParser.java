@@ -3,321 +3,963 @@ package ru.nlolik.dialog.config;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.Level;
+import ru.nlolik.ChatDialogs;
 import ru.nlolik.dialog.action.DialogAction;
 import ru.nlolik.dialog.action.DialogActionParser;
 import ru.nlolik.dialog.condition.DialogCondition;
 import ru.nlolik.dialog.condition.DialogConditionFactory;
 import ru.nlolik.dialog.event.DialogEventTrigger;
+import ru.nlolik.dialog.event.DialogRegion;
+import ru.nlolik.dialog.event.ScoreThreshold;
 import ru.nlolik.dialog.event.DialogEventType;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
 
+/**
+ * Builds dialog definitions straight from a {@link JsonReader}, without an intermediate JSON tree.
+ * Each object is read once, member by member, into a small set of fields that is turned into the
+ * definition, node or button when the object ends, so keys may appear in any order and the usual
+ * aliases keep their precedence. Only actions and conditions, which are small, are read as trees
+ * and handed to their parsers.
+ *
+ * <p>Errors carry the line, column and path of the reader.
+ *
+ * <p>With lazy nodes, each node is parsed through a {@link BinaryJson.Recorder}, which keeps an
+ * encoded copy of it; the definition then holds the copy instead of the built node (see
+ * {@link LazyDialogNode}).
+ */
 public final class DialogJsonParser {
+    private static final DialogTextStyle NO_STYLE = new DialogTextStyle(null, List.of(), null);
+
     private DialogJsonParser() {
     }
 
-    public static DialogDefinition parseDefinition(JsonObject object, String source) {
-        String sourceName = source;
-        if (sourceName == null || sourceName.isBlank()) {
-            sourceName = "dialog";
-        }
-        int extensionIndex = sourceName.lastIndexOf('.');
-        if (extensionIndex > 0) {
-            sourceName = sourceName.substring(0, extensionIndex);
+    /**
+     * Reads the object at the reader as one dialog, or as the dialogs of its {@code dialogs} array
+     * if it has one.
+     */
+    public static List<DialogDefinition> parseDefinitions(JsonReader reader, String source, boolean lazyNodes) throws IOException {
+        DefinitionFields fields = readDefinition(reader, source, true, lazyNodes);
+        if (fields.dialogs != null) {
+            return fields.dialogs;
         }
-        String id = getString(object, "id", sourceName.replace('.', '_'));
-        String displayName = getString(object, "name", id);
-        String start = getString(object, "start", "start");
-        int initialDelay = getTimeTicks(object, "time_to_start", "delay");
+        return List.of(fields.build(source));
+    }
+
+    public static DialogDefinition parseDefinition(JsonReader reader, String source, boolean lazyNodes) throws IOException {
+        return readDefinition(reader, source, false, lazyNodes).build(source);
+    }
+
+    static DialogNode parseNode(JsonReader reader, String nodeId) throws IOException {
+        return readNode(reader).build(nodeId);
+    }
+
+    private static final class DefinitionFields {
+        String id;
+        String name;
+        String start;
+        Scalar timeToStart;
+        Scalar delay;
+        Map<String, NodeFields> nodes;
+        List<NodeFields> steps;
+        Map<String, RegionFields> regions = Map.of();
+        List<TriggerFields> events = List.of();
+        CooldownFields cooldown = new CooldownFields();
+        List<DialogDefinition> dialogs;
+        boolean lazyNodes;
+
+        DialogDefinition build(String source) {
+            String sourceName = source;
+            if (sourceName == null || sourceName.isBlank()) {
+                sourceName = "dialog";
+            }
+            int extensionIndex = sourceName.lastIndexOf('.');
+            if (extensionIndex > 0) {
+                sourceName = sourceName.substring(0, extensionIndex);
+            }
+            String dialogId = id != null ? id : sourceName.replace('.', '_');
+            String displayName = name != null ? name : dialogId;
+            String startNode = start != null ? start : "start";
+            int initialDelay = ticks(timeToStart, delay);
 
-        Map<String, DialogNode> nodes = new LinkedHashMap<>();
-        if (object.has("nodes") && object.get("nodes").isJsonObject()) {
-            JsonObject nodesObj = object.getAsJsonObject("nodes");
-            for (Map.Entry<String, JsonElement> entry : nodesObj.entrySet()) {
-                if (!entry.getValue().isJsonObject()) {
-                    continue;
+            Map<String, DialogNode> built = new LinkedHashMap<>();
+            Map<String, byte[]> encoded = new LinkedHashMap<>();
+            if (nodes != null) {
+                nodes.forEach((nodeId, node) -> {
+                    built.put(nodeId, node.build(nodeId));
+                    encoded.put(nodeId, node.encoded);
+                });
+            } else if (steps != null) {
+                for (NodeFields step : steps) {
+                    String nodeId = step.id == null ? null : step.id.text();
+                    if (nodeId != null) {
+                        built.put(nodeId, step.build(nodeId));
+                        encoded.put(nodeId, step.encoded);
+                    }
                 }
-                nodes.put(entry.getKey(), parseNode(entry.getKey(), entry.getValue().getAsJsonObject()));
             }
-        } else if (object.has("steps") && object.get("steps").isJsonArray()) {
-            JsonArray array = object.getAsJsonArray("steps");
-            for (JsonElement element : array) {
-                if (!element.isJsonObject()) {
-                    continue;
+
+            Map<String, DialogRegion> builtRegions = new LinkedHashMap<>();
+            regions.forEach((key, region) -> {
+                DialogRegion value = region.build(dialogId + ":" + key, dialogId);
+                if (value != null) {
+                    builtRegions.put(key, value);
                 }
-                JsonObject step = element.getAsJsonObject();
-                String nodeId = getString(step, "id", null);
-                if (nodeId == null) {
-                    continue;
+            });
+            List<DialogEventTrigger> triggers = new ArrayList<>();
+            for (TriggerFields trigger : events) {
+                DialogEventTrigger value = trigger.build(dialogId, builtRegions);
+                if (value != null) {
+                    triggers.add(value);
                 }
-                nodes.put(nodeId, parseNode(nodeId, step));
+            }
+            Cooldown dialogCooldown = cooldown.build().withKey("dialog:" + dialogId);
+            DialogDefinition definition = DialogLinker.link(new DialogDefinition(dialogId, displayName, sourceName, startNode, initialDelay, built, triggers, dialogCooldown));
+            return lazyNodes ? LazyDialogNode.unload(definition, encoded) : definition;
+        }
+    }
+
+    private static DefinitionFields readDefinition(JsonReader reader, String source, boolean root, boolean lazyNodes) throws IOException {
+        DefinitionFields fields = new DefinitionFields();
+        fields.lazyNodes = lazyNodes;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            switch (key) {
+                case "id" -> fields.id = string(reader);
+                case "name" -> fields.name = string(reader);
+                case "start" -> fields.start = string(reader);
+                case "time_to_start" -> fields.timeToStart = scalar(reader);
+                case "delay" -> fields.delay = scalar(reader);
+                case "nodes" -> fields.nodes = readNodes(reader, lazyNodes);
+                case "steps" -> fields.steps = readSteps(reader, lazyNodes);
+                case "regions" -> fields.regions = readRegions(reader);
+                case "events" -> fields.events = readTriggers(reader);
+                case "dialogs" -> {
+                    if (root && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        fields.dialogs = readDialogs(reader, source, lazyNodes);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                default -> {
+                    if (!fields.cooldown.read(key, reader)) {
+                        reader.skipValue();
+                    }
+                }
+            }
+        }
+        reader.endObject();
+        return fields;
+    }
+
+    private static List<DialogDefinition> readDialogs(JsonReader reader, String source, boolean lazyNodes) throws IOException {
+        List<DialogDefinition> dialogs = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                dialogs.add(parseDefinition(reader, source, lazyNodes));
+            } else {
+                reader.skipValue();
             }
         }
+        reader.endArray();
+        return dialogs;
+    }
 
-        List<DialogEventTrigger> triggers = parseTriggers(object.get("events"), id);
-        return new DialogDefinition(id, displayName, sourceName, start, initialDelay, nodes, triggers);
+    private static Map<String, NodeFields> readNodes(JsonReader reader, boolean lazy) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        Map<String, NodeFields> nodes = new LinkedHashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String nodeId = reader.nextName();
+            if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                nodes.put(nodeId, readNode(reader, lazy));
+            } else {
+                nodes.remove(nodeId);
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return nodes;
     }
 
-    private static DialogNode parseNode(String nodeId, JsonObject nodeObj) {
-        List<DialogLine> lines = parseLines(nodeObj.get("lines"));
-        if (lines.isEmpty()) {
-            lines.addAll(parseLines(nodeObj.get("messages")));
+    private static List<NodeFields> readSteps(JsonReader reader, boolean lazy) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
         }
-        List<DialogAction> actions = DialogActionParser.parse(nodeObj.get("actions"));
-        List<DialogButton> buttons = parseButtons(nodeObj.get("buttons"));
-        List<ConditionalBranch> branches = parseBranches(nodeObj);
-        int startDelay = getTimeTicks(nodeObj, "time_to_start", "start_delay");
-        String autoNext = getString(nodeObj, "auto_next", getString(nodeObj, "default_next", null));
-        int autoNextDelay = getInt(nodeObj, "auto_next_delay", getInt(nodeObj, "auto_delay", 0));
-        boolean closeOnFinish = nodeObj.has("close") && nodeObj.get("close").getAsBoolean();
-        int stopDelay = getTimeTicks(nodeObj, "stop_time", "stop_delay");
-        if (stopDelay == 0 && nodeObj.has("stop_ticks") && nodeObj.get("stop_ticks").isJsonPrimitive()) {
-            stopDelay = Math.max(0, nodeObj.get("stop_ticks").getAsInt());
+        List<NodeFields> steps = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                steps.add(readNode(reader, lazy));
+            } else {
+                reader.skipValue();
+            }
         }
-        return new DialogNode(nodeId, lines, actions, buttons, branches, startDelay, autoNext, autoNextDelay, closeOnFinish, stopDelay);
+        reader.endArray();
+        return steps;
     }
 
-    private static List<DialogLine> parseLines(JsonElement element) {
-        List<DialogLine> lines = new ArrayList<>();
-        if (element == null) {
-            return lines;
+    private static final class NodeFields {
+        Scalar id;
+        List<DialogLine> lines = List.of();
+        List<DialogLine> messages = List.of();
+        List<DialogAction> actions = List.of();
+        List<DialogButton> buttons = List.of();
+        List<ConditionalBranch> branches;
+        JsonElement ifCondition;
+        JsonElement thenActions;
+        String thenNext;
+        JsonElement elif;
+        JsonElement elifActions;
+        String elifNext;
+        JsonElement elseActions;
+        String elseNext;
+        Scalar timeToStart;
+        Scalar startDelay;
+        String autoNext;
+        String defaultNext;
+        Scalar autoNextDelay;
+        Scalar autoDelay;
+        boolean close;
+        Scalar stopTime;
+        Scalar stopDelay;
+        Scalar stopTicks;
+        byte[] encoded;
+
+        DialogNode build(String nodeId) {
+            List<DialogLine> nodeLines = lines.isEmpty() ? messages : lines;
+            int delay = ticks(timeToStart, startDelay);
+            String next = autoNext != null ? autoNext : defaultNext;
+            int nextDelay = integer(autoNextDelay, integer(autoDelay, 0));
+            int stop = ticks(stopTime, stopDelay);
+            if (stop == 0 && stopTicks != null) {
+                stop = Math.max(0, integer(stopTicks, 0));
+            }
+            return new DialogNode(nodeId, nodeLines, actions, buttons, branches, delay, next, nextDelay, close, stop);
         }
-        if (element.isJsonArray()) {
-            JsonArray array = element.getAsJsonArray();
-            for (JsonElement jsonElement : array) {
-                parseLine(jsonElement).ifPresent(lines::add);
+
+        /**
+         * The {@code if}, {@code elif} and {@code else} shorthand, used when there is no
+         * {@code branches} array.
+         */
+        List<ConditionalBranch> shorthandBranches() {
+            List<ConditionalBranch> result = new ArrayList<>();
+            if (ifCondition != null) {
+                result.add(new ConditionalBranch(ConditionalBranch.Type.IF, DialogConditionFactory.parse(ifCondition), DialogActionParser.parse(thenActions), thenNext));
+            }
+            if (elif != null) {
+                if (elif.isJsonArray()) {
+                    for (JsonElement entry : elif.getAsJsonArray()) {
+                        if (!entry.isJsonObject()) {
+                            continue;
+                        }
+                        JsonObject obj = entry.getAsJsonObject();
+                        DialogCondition condition = DialogConditionFactory.parse(obj.get("condition"));
+                        List<DialogAction> branchActions = DialogActionParser.parse(obj.get("actions"));
+                        String branchNext = obj.has("next") && obj.get("next").isJsonPrimitive() ? obj.get("next").getAsString() : null;
+                        result.add(new ConditionalBranch(ConditionalBranch.Type.ELIF, condition, branchActions, branchNext));
+                    }
+                } else {
+                    result.add(new ConditionalBranch(ConditionalBranch.Type.ELIF, DialogConditionFactory.parse(elif), DialogActionParser.parse(elifActions), elifNext));
+                }
+            }
+            if (elseActions != null) {
+                result.add(new ConditionalBranch(ConditionalBranch.Type.ELSE, DialogCondition.TRUE, DialogActionParser.parse(elseActions), elseNext));
             }
+            return result;
+        }
+    }
+
+    private static NodeFields readNode(JsonReader reader, boolean lazy) throws IOException {
+        if (!lazy) {
+            return readNode(reader);
+        }
+        BinaryJson.Recorder recorder = BinaryJson.record(reader);
+        NodeFields node = readNode(recorder);
+        node.encoded = recorder.encoded();
+        return node;
+    }
+
+    private static NodeFields readNode(JsonReader reader) throws IOException {
+        NodeFields node = new NodeFields();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id" -> node.id = scalar(reader);
+                case "lines" -> node.lines = readLines(reader);
+                case "messages" -> node.messages = readLines(reader);
+                case "actions" -> node.actions = actions(reader);
+                case "buttons" -> node.buttons = readButtons(reader);
+                case "branches" -> node.branches = readBranches(reader);
+                case "if" -> node.ifCondition = element(reader);
+                case "then" -> node.thenActions = element(reader);
+                case "then_next" -> node.thenNext = string(reader);
+                case "elif" -> node.elif = element(reader);
+                case "elif_actions" -> node.elifActions = element(reader);
+                case "elif_next" -> node.elifNext = string(reader);
+                case "else" -> node.elseActions = element(reader);
+                case "else_next" -> node.elseNext = string(reader);
+                case "time_to_start" -> node.timeToStart = scalar(reader);
+                case "start_delay" -> node.startDelay = scalar(reader);
+                case "auto_next" -> node.autoNext = string(reader);
+                case "default_next" -> node.defaultNext = string(reader);
+                case "auto_next_delay" -> node.autoNextDelay = scalar(reader);
+                case "auto_delay" -> node.autoDelay = scalar(reader);
+                case "close" -> node.close = bool(reader);
+                case "stop_time" -> node.stopTime = scalar(reader);
+                case "stop_delay" -> node.stopDelay = scalar(reader);
+                case "stop_ticks" -> node.stopTicks = scalar(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (node.branches == null) {
+            try {
+                node.branches = node.shorthandBranches();
+            } catch (RuntimeException e) {
+                throw error(reader, "Invalid branch", e);
+            }
+        }
+        return node;
+    }
+
+    private static List<DialogLine> readLines(JsonReader reader) throws IOException {
+        List<DialogLine> lines = new ArrayList<>();
+        if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                readLine(reader, lines);
+            }
+            reader.endArray();
         } else {
-            parseLine(element).ifPresent(lines::add);
+            readLine(reader, lines);
         }
         return lines;
     }
 
-    private static java.util.Optional<DialogLine> parseLine(JsonElement element) {
-        if (element == null || element.isJsonNull()) {
-            return java.util.Optional.empty();
-        }
-        if (element.isJsonPrimitive()) {
-            return java.util.Optional.of(new DialogLine(element.getAsString(), new DialogTextStyle(null, List.of(), null), 0, null));
-        }
-        if (element.isJsonObject()) {
-            JsonObject obj = element.getAsJsonObject();
-            String text = getString(obj, "text", "");
-            DialogTextStyle style = parseStyle(obj, "text_color", "text_format", "text_modifier");
-            int delay = getInt(obj, "ticks", getInt(obj, "delay", 0));
-            LoopSettings loop = null;
-            if (obj.has("loop") && obj.get("loop").isJsonObject()) {
-                JsonObject loopObj = obj.getAsJsonObject("loop");
-                int times = getInt(loopObj, "times", loopObj.has("forever") && loopObj.get("forever").getAsBoolean() ? -1 : 1);
-                int interval = getInt(loopObj, "ticks", 20);
-                if (loopObj.has("text")) {
-                    text = loopObj.get("text").getAsString();
+    private static void readLine(JsonReader reader, List<DialogLine> lines) throws IOException {
+        switch (reader.peek()) {
+            case STRING, NUMBER, BOOLEAN -> lines.add(new DialogLine(scalar(reader).text(), NO_STYLE, 0, null));
+            case BEGIN_OBJECT -> {
+                String text = "";
+                StyleFields style = new StyleFields();
+                Scalar ticks = null;
+                Scalar delay = null;
+                LoopSettings loop = null;
+                String loopText = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String key = reader.nextName();
+                    switch (key) {
+                        case "text" -> text = string(reader, text);
+                        case "ticks" -> ticks = scalar(reader);
+                        case "delay" -> delay = scalar(reader);
+                        case "loop" -> {
+                            loop = null;
+                            loopText = null;
+                            if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                                Scalar times = null;
+                                Scalar interval = null;
+                                boolean forever = false;
+                                reader.beginObject();
+                                while (reader.hasNext()) {
+                                    switch (reader.nextName()) {
+                                        case "times" -> times = scalar(reader);
+                                        case "forever" -> forever = bool(reader);
+                                        case "ticks" -> interval = scalar(reader);
+                                        case "text" -> loopText = string(reader);
+                                        default -> reader.skipValue();
+                                    }
+                                }
+                                reader.endObject();
+                                loop = new LoopSettings(integer(times, forever ? -1 : 1), integer(interval, 20));
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        default -> {
+                            if (!style.read(key, reader, "text_color", "text_format", "text_modifier")) {
+                                reader.skipValue();
+                            }
+                        }
+                    }
+                }
+                reader.endObject();
+                if (loopText != null) {
+                    text = loopText;
                 }
-                loop = new LoopSettings(times, interval);
+                lines.add(new DialogLine(text, style.build(), integer(ticks, integer(delay, 0)), loop));
             }
-            return java.util.Optional.of(new DialogLine(text, style, delay, loop));
+            default -> reader.skipValue();
         }
-        return java.util.Optional.empty();
     }
 
-    private static List<DialogButton> parseButtons(JsonElement element) {
+    private static List<DialogButton> readButtons(JsonReader reader) throws IOException {
         List<DialogButton> buttons = new ArrayList<>();
-        if (element == null || !element.isJsonArray()) {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
             return buttons;
         }
-        JsonArray array = element.getAsJsonArray();
         int index = 0;
-        for (JsonElement entry : array) {
+        reader.beginArray();
+        while (reader.hasNext()) {
             index++;
-            if (entry.isJsonPrimitive()) {
-                String text = entry.getAsString();
-                buttons.add(new DialogButton("button_" + index, text, new DialogTextStyle(null, List.of(), null), List.of(), null, List.of(), false, 0));
+            switch (reader.peek()) {
+                case STRING, NUMBER, BOOLEAN -> buttons.add(new DialogButton("button_" + index, scalar(reader).text(), NO_STYLE, List.of(), null, List.of(), false, 0));
+                case BEGIN_OBJECT -> buttons.add(readButton(reader, index));
+                default -> reader.skipValue();
+            }
+        }
+        reader.endArray();
+        return buttons;
+    }
+
+    private static DialogButton readButton(JsonReader reader, int index) throws IOException {
+        String id = null;
+        String name = null;
+        String text = null;
+        String buttonText = null;
+        StyleFields buttonStyle = new StyleFields();
+        StyleFields textStyle = new StyleFields();
+        List<DialogAction> actions = List.of();
+        List<DialogAction> buttonAction = List.of();
+        List<DialogAction> buttonExecute = List.of();
+        String next = null;
+        String gotoNode = null;
+        List<DialogCondition> conditions = List.of();
+        DialogCondition ifCondition = null;
+        boolean close = false;
+        boolean buttonClose = false;
+        Scalar delay = null;
+        Scalar ticks = null;
+        CooldownFields cooldown = new CooldownFields();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            switch (key) {
+                case "id" -> id = string(reader);
+                case "name" -> name = string(reader);
+                case "text" -> text = string(reader);
+                case "button_text" -> buttonText = string(reader);
+                case "actions" -> actions = actions(reader);
+                case "button_action" -> buttonAction = actions(reader);
+                case "button_execute" -> buttonExecute = actions(reader);
+                case "next" -> next = string(reader);
+                case "goto" -> gotoNode = string(reader);
+                case "conditions" -> conditions = conditions(reader);
+                case "if" -> ifCondition = condition(reader);
+                case "close" -> close = bool(reader);
+                case "button_close" -> buttonClose = bool(reader);
+                case "delay" -> delay = scalar(reader);
+                case "ticks" -> ticks = scalar(reader);
+                default -> {
+                    if (!buttonStyle.read(key, reader, "button_color", "button_format", "button_modifier")
+                            && !textStyle.read(key, reader, "text_color", "text_format", "text_modifier")
+                            && !cooldown.read(key, reader)) {
+                        reader.skipValue();
+                    }
+                }
+            }
+        }
+        reader.endObject();
+        String buttonId = id != null ? id : name != null ? name : "button_" + index;
+        String buttonLabel = text != null ? text : buttonText != null ? buttonText : "Button";
+        DialogTextStyle style = buttonStyle.build();
+        if (style.isEmpty()) {
+            style = textStyle.build();
+        }
+        List<DialogAction> allActions = new ArrayList<>(actions);
+        allActions.addAll(buttonAction);
+        allActions.addAll(buttonExecute);
+        List<DialogCondition> allConditions = new ArrayList<>(conditions);
+        if (ifCondition != null) {
+            allConditions.add(ifCondition);
+        }
+        String nextNode = next != null ? next : gotoNode;
+        return new DialogButton(buttonId, buttonLabel, style, allActions, nextNode, allConditions, close || buttonClose,
+                integer(delay, integer(ticks, 0)), cooldown.build());
+    }
+
+    private static List<ConditionalBranch> readBranches(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+        List<ConditionalBranch> branches = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
                 continue;
             }
-            if (!entry.isJsonObject()) {
+            ConditionalBranch.Type type = ConditionalBranch.Type.IF;
+            JsonElement condition = null;
+            List<DialogAction> actions = List.of();
+            String next = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "type" -> {
+                        String typeValue = string(reader, "if").toLowerCase(Locale.ROOT);
+                        if ("elif".equals(typeValue) || "else_if".equals(typeValue)) {
+                            type = ConditionalBranch.Type.ELIF;
+                        } else if ("else".equals(typeValue)) {
+                            type = ConditionalBranch.Type.ELSE;
+                        } else {
+                            type = ConditionalBranch.Type.IF;
+                        }
+                    }
+                    case "condition" -> condition = element(reader);
+                    case "actions" -> actions = actions(reader);
+                    case "next" -> next = string(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            DialogCondition parsed;
+            try {
+                parsed = type == ConditionalBranch.Type.ELSE ? DialogCondition.TRUE : DialogConditionFactory.parse(condition);
+            } catch (RuntimeException e) {
+                throw error(reader, "Invalid condition", e);
+            }
+            branches.add(new ConditionalBranch(type, parsed, actions, next));
+        }
+        reader.endArray();
+        return branches;
+    }
+
+    private static final class TriggerFields {
+        int index;
+        String event;
+        String name;
+        String eventName;
+        String dialog;
+        String node;
+        List<DialogCondition> conditions = List.of();
+        List<DialogAction> actions = List.of();
+        Map<String, String> filters = Map.of();
+        CooldownFields cooldown = new CooldownFields();
+        String regionName;
+        RegionFields region;
+        String objective;
+        String threshold;
+
+        DialogEventTrigger build(String dialogId, Map<String, DialogRegion> regions) {
+            DialogEventType type = DialogEventType.from(event);
+            String triggerName = name != null ? name : eventName;
+            String targetDialog = dialog != null ? dialog : dialogId;
+            Cooldown triggerCooldown = cooldown.build().withKey("trigger:" + dialogId + "#" + index);
+            DialogRegion triggerRegion = null;
+            if (regionName != null) {
+                triggerRegion = regions.get(regionName);
+                if (triggerRegion == null) {
+                    ChatDialogs.LOGGER.warn("Dialog '{}': trigger #{} uses unknown region '{}'", dialogId, index, regionName);
+                    return null;
+                }
+            } else if (region != null) {
+                triggerRegion = region.build(dialogId + ":#" + index, dialogId);
+                if (triggerRegion == null) {
+                    return null;
+                }
+            }
+            ScoreThreshold scoreThreshold = null;
+            if (threshold != null) {
+                scoreThreshold = ScoreThreshold.parse(threshold);
+                if (scoreThreshold == null) {
+                    ChatDialogs.LOGGER.warn("Dialog '{}': trigger #{} has an invalid threshold '{}'", dialogId, index, threshold);
+                    return null;
+                }
+            }
+            return new DialogEventTrigger(type, triggerName, targetDialog, node, conditions, actions, filters, triggerCooldown, triggerRegion, objective, scoreThreshold);
+        }
+    }
+
+    private static List<TriggerFields> readTriggers(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return List.of();
+        }
+        List<TriggerFields> triggers = new ArrayList<>();
+        int index = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            index++;
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
                 continue;
             }
-            JsonObject obj = entry.getAsJsonObject();
-            String id = getString(obj, "id", getString(obj, "name", "button_" + index));
-            String text = getString(obj, "text", getString(obj, "button_text", "Button"));
-            DialogTextStyle style = parseStyle(obj, "button_color", "button_format", "button_modifier");
-            if (style.isEmpty()) {
-                style = parseStyle(obj, "text_color", "text_format", "text_modifier");
+            TriggerFields trigger = new TriggerFields();
+            trigger.index = index;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                switch (key) {
+                    case "event" -> trigger.event = string(reader);
+                    case "name" -> trigger.name = string(reader);
+                    case "event_name" -> trigger.eventName = string(reader);
+                    case "dialog" -> trigger.dialog = string(reader);
+                    case "node" -> trigger.node = string(reader);
+                    case "conditions" -> trigger.conditions = conditions(reader);
+                    case "actions" -> trigger.actions = actions(reader);
+                    case "filters" -> trigger.filters = readFilters(reader);
+                    case "region" -> {
+                        trigger.regionName = null;
+                        trigger.region = null;
+                        if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                            trigger.region = readRegion(reader);
+                        } else {
+                            trigger.regionName = string(reader);
+                        }
+                    }
+                    case "objective" -> trigger.objective = string(reader);
+                    case "threshold" -> trigger.threshold = string(reader);
+                    default -> {
+                        if (!trigger.cooldown.read(key, reader)) {
+                            reader.skipValue();
+                        }
+                    }
+                }
+            }
+            reader.endObject();
+            triggers.add(trigger);
+        }
+        reader.endArray();
+        return triggers;
+    }
+
+    private static Map<String, String> readFilters(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return Map.of();
+        }
+        Map<String, String> filters = new LinkedHashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            String value = string(reader);
+            if (value != null) {
+                filters.put(key, value);
+            } else {
+                filters.remove(key);
+            }
+        }
+        reader.endObject();
+        return filters;
+    }
+
+    private static Map<String, RegionFields> readRegions(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return Map.of();
+        }
+        Map<String, RegionFields> regions = new LinkedHashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                regions.put(key, readRegion(reader));
+            } else {
+                regions.remove(key);
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return regions;
+    }
+
+    /**
+     * A cuboid ({@code min} and {@code max} as {@code [x, y, z]}) or a sphere ({@code center}
+     * and {@code radius}) in {@code dimension}, which defaults to the overworld.
+     */
+    private static final class RegionFields {
+        String dimension;
+        Scalar stayInterval;
+        Scalar stayIntervalTicks;
+        double[] center;
+        Scalar radius;
+        double[] min;
+        double[] max;
+
+        DialogRegion build(String key, String dialogId) {
+            ResourceLocation dimensionId = ResourceLocation.tryParse(dimension != null ? dimension : "minecraft:overworld");
+            if (dimensionId == null) {
+                ChatDialogs.LOGGER.warn("Dialog '{}': region '{}' has an invalid dimension", dialogId, key);
+                return null;
+            }
+            ResourceKey<Level> dimensionKey = ResourceKey.create(Registries.DIMENSION, dimensionId);
+            int stay = ticks(stayInterval, stayIntervalTicks);
+            if (stay <= 0) {
+                stay = 20;
             }
-            List<DialogAction> actions = new ArrayList<>(DialogActionParser.parse(obj.get("actions")));
-            if (obj.has("button_action")) {
-                actions.addAll(DialogActionParser.parse(obj.get("button_action")));
+            if (center != null && radius != null && radius.type() == JsonToken.NUMBER) {
+                return DialogRegion.sphere(key, dimensionKey, center[0], center[1], center[2], Double.parseDouble(radius.text()), stay);
             }
-            if (obj.has("button_execute")) {
-                actions.addAll(DialogActionParser.parse(obj.get("button_execute")));
+            if (min == null || max == null) {
+                ChatDialogs.LOGGER.warn("Dialog '{}': region '{}' needs either min and max or center and radius", dialogId, key);
+                return null;
             }
-            String next = getString(obj, "next", getString(obj, "goto", null));
-            List<DialogCondition> conditions = parseConditions(obj.get("conditions"));
-            if (obj.has("if")) {
-                conditions.add(DialogConditionFactory.parse(obj.get("if")));
+            return DialogRegion.cuboid(key, dimensionKey, (int) Math.floor(min[0]), (int) Math.floor(min[1]), (int) Math.floor(min[2]),
+                    (int) Math.floor(max[0]), (int) Math.floor(max[1]), (int) Math.floor(max[2]), stay);
+        }
+    }
+
+    private static RegionFields readRegion(JsonReader reader) throws IOException {
+        RegionFields region = new RegionFields();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "dimension" -> region.dimension = string(reader);
+                case "stay_interval" -> region.stayInterval = scalar(reader);
+                case "stay_interval_ticks" -> region.stayIntervalTicks = scalar(reader);
+                case "center" -> region.center = coordinates(reader);
+                case "radius" -> region.radius = scalar(reader);
+                case "min" -> region.min = coordinates(reader);
+                case "max" -> region.max = coordinates(reader);
+                default -> reader.skipValue();
             }
-            boolean close = obj.has("close") && obj.get("close").getAsBoolean();
-            close = close || (obj.has("button_close") && obj.get("button_close").getAsBoolean());
-            int delay = getInt(obj, "delay", getInt(obj, "ticks", 0));
-            buttons.add(new DialogButton(id, text, style, actions, next, conditions, close, delay));
         }
-        return buttons;
+        reader.endObject();
+        return region;
     }
 
-    private static List<DialogCondition> parseConditions(JsonElement element) {
-        List<DialogCondition> conditions = new ArrayList<>();
-        if (element == null) {
-            return conditions;
+    private static double[] coordinates(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
         }
-        if (element.isJsonArray()) {
-            JsonArray array = element.getAsJsonArray();
-            for (JsonElement entry : array) {
-                conditions.add(DialogConditionFactory.parse(entry));
+        double[] coordinates = new double[3];
+        int count = 0;
+        boolean valid = true;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (valid && count < 3 && reader.peek() == JsonToken.NUMBER) {
+                coordinates[count] = reader.nextDouble();
+            } else {
+                valid = false;
+                reader.skipValue();
             }
-        } else {
-            conditions.add(DialogConditionFactory.parse(element));
+            count++;
         }
-        return conditions;
+        reader.endArray();
+        return valid && count == 3 ? coordinates : null;
     }
 
-    private static List<ConditionalBranch> parseBranches(JsonObject nodeObj) {
-        List<ConditionalBranch> branches = new ArrayList<>();
-        if (nodeObj.has("branches") && nodeObj.get("branches").isJsonArray()) {
-            JsonArray array = nodeObj.getAsJsonArray("branches");
-            for (JsonElement element : array) {
-                if (!element.isJsonObject()) {
-                    continue;
+    /**
+     * {@code cooldown} and {@code debounce} in seconds or with a unit ({@code "40t"}, {@code "5s"},
+     * {@code "2m"}), or {@code cooldown_ticks} and {@code debounce_ticks}. The key is filled in by
+     * the caller.
+     */
+    private static final class CooldownFields {
+        Scalar cooldown;
+        Scalar cooldownTicks;
+        Scalar debounce;
+        Scalar debounceTicks;
+
+        boolean read(String key, JsonReader reader) throws IOException {
+            switch (key) {
+                case "cooldown" -> cooldown = duration(key, reader);
+                case "cooldown_ticks" -> cooldownTicks = scalar(reader);
+                case "debounce" -> debounce = duration(key, reader);
+                case "debounce_ticks" -> debounceTicks = scalar(reader);
+                default -> {
+                    return false;
                 }
-                JsonObject obj = element.getAsJsonObject();
-                ConditionalBranch.Type type = ConditionalBranch.Type.IF;
-                if (obj.has("type")) {
-                    String typeValue = obj.get("type").getAsString().toLowerCase(Locale.ROOT);
-                    if ("elif".equals(typeValue) || "else_if".equals(typeValue)) {
-                        type = ConditionalBranch.Type.ELIF;
-                    } else if ("else".equals(typeValue)) {
-                        type = ConditionalBranch.Type.ELSE;
+            }
+            return true;
+        }
+
+        Cooldown build() {
+            return new Cooldown(null, ticks(cooldown, cooldownTicks), ticks(debounce, debounceTicks));
+        }
+
+        private static Scalar duration(String key, JsonReader reader) throws IOException {
+            Scalar value = scalar(reader);
+            if (value != null && value.type() == JsonToken.STRING && !value.text().equalsIgnoreCase("false")
+                    && Double.isNaN(seconds(value.text()))) {
+                ChatDialogs.LOGGER.warn("Ignoring invalid {} '{}' ({})", key, value.text(), location(reader));
+            }
+            return value;
+        }
+    }
+
+    private static final class StyleFields {
+        String color;
+        List<String> formats = List.of();
+        String modifier;
+
+        boolean read(String key, JsonReader reader, String colorKey, String formatKey, String modifierKey) throws IOException {
+            if (key.equals(colorKey)) {
+                color = string(reader);
+            } else if (key.equals(formatKey)) {
+                formats = new ArrayList<>();
+                if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        String format = string(reader);
+                        if (format != null) {
+                            formats.add(format);
+                        }
                     }
-                }
-                DialogCondition condition = type == ConditionalBranch.Type.ELSE ? DialogCondition.TRUE : DialogConditionFactory.parse(obj.get("condition"));
-                List<DialogAction> actions = DialogActionParser.parse(obj.get("actions"));
-                String next = getString(obj, "next", null);
-                branches.add(new ConditionalBranch(type, condition, actions, next));
-            }
-            return branches;
-        }
-        if (nodeObj.has("if")) {
-            DialogCondition condition = DialogConditionFactory.parse(nodeObj.get("if"));
-            List<DialogAction> actions = DialogActionParser.parse(nodeObj.get("then"));
-            String next = getString(nodeObj, "then_next", null);
-            branches.add(new ConditionalBranch(ConditionalBranch.Type.IF, condition, actions, next));
-        }
-        if (nodeObj.has("elif")) {
-            JsonElement elifElement = nodeObj.get("elif");
-            if (elifElement.isJsonArray()) {
-                for (JsonElement entry : elifElement.getAsJsonArray()) {
-                    if (!entry.isJsonObject()) {
-                        continue;
+                    reader.endArray();
+                } else {
+                    String format = string(reader);
+                    if (format != null) {
+                        formats.add(format);
                     }
-                    JsonObject obj = entry.getAsJsonObject();
-                    DialogCondition condition = DialogConditionFactory.parse(obj.get("condition"));
-                    List<DialogAction> actions = DialogActionParser.parse(obj.get("actions"));
-                    String next = getString(obj, "next", null);
-                    branches.add(new ConditionalBranch(ConditionalBranch.Type.ELIF, condition, actions, next));
                 }
+            } else if (key.equals(modifierKey)) {
+                modifier = string(reader);
             } else {
-                DialogCondition condition = DialogConditionFactory.parse(elifElement);
-                branches.add(new ConditionalBranch(ConditionalBranch.Type.ELIF, condition, DialogActionParser.parse(nodeObj.get("elif_actions")), getString(nodeObj, "elif_next", null)));
+                return false;
             }
+            return true;
         }
-        if (nodeObj.has("else")) {
-            JsonElement elseElement = nodeObj.get("else");
-            List<DialogAction> actions = DialogActionParser.parse(elseElement);
-            String next = getString(nodeObj, "else_next", null);
-            branches.add(new ConditionalBranch(ConditionalBranch.Type.ELSE, DialogCondition.TRUE, actions, next));
+
+        DialogTextStyle build() {
+            return new DialogTextStyle(color, formats, modifier);
         }
-        return branches;
     }
 
-    private static List<DialogEventTrigger> parseTriggers(JsonElement element, String dialogId) {
-        List<DialogEventTrigger> triggers = new ArrayList<>();
-        if (element == null) {
-            return triggers;
-        }
-        if (!element.isJsonArray()) {
-            return triggers;
-        }
-        for (JsonElement entry : element.getAsJsonArray()) {
-            if (!entry.isJsonObject()) {
-                continue;
+    /**
+     * A string, number or boolean value with the text it was written as.
+     */
+    private record Scalar(JsonToken type, String text) {
+    }
+
+    /**
+     * Reads a string, number or boolean; {@code null} and containers are skipped and read as
+     * missing.
+     */
+    private static Scalar scalar(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        switch (token) {
+            case STRING, NUMBER -> {
+                return new Scalar(token, reader.nextString());
+            }
+            case BOOLEAN -> {
+                return new Scalar(token, reader.nextBoolean() ? "true" : "false");
+            }
+            default -> {
+                reader.skipValue();
+                return null;
             }
-            JsonObject obj = entry.getAsJsonObject();
-            DialogEventType type = DialogEventType.from(getString(obj, "event", null));
-            String name = getString(obj, "name", getString(obj, "event_name", null));
-            String targetDialog = getString(obj, "dialog", dialogId);
-            String node = getString(obj, "node", null);
-            List<DialogCondition> conditions = parseConditions(obj.get("conditions"));
-            List<DialogAction> actions = DialogActionParser.parse(obj.get("actions"));
-            Map<String, String> filters = parseFilters(obj.get("filters"));
-            triggers.add(new DialogEventTrigger(type, name, targetDialog, node, conditions, actions, filters));
         }
-        return triggers;
     }
 
-    private static Map<String, String> parseFilters(JsonElement element) {
-        if (element == null || !element.isJsonObject()) {
-            return Map.of();
+    private static String string(JsonReader reader) throws IOException {
+        return string(reader, null);
+    }
+
+    private static String string(JsonReader reader, String fallback) throws IOException {
+        Scalar value = scalar(reader);
+        return value == null ? fallback : value.text();
+    }
+
+    private static boolean bool(JsonReader reader) throws IOException {
+        Scalar value = scalar(reader);
+        return value != null && Boolean.parseBoolean(value.text());
+    }
+
+    private static JsonElement element(JsonReader reader) throws IOException {
+        return JsonParser.parseReader(reader);
+    }
+
+    private static List<DialogAction> actions(JsonReader reader) throws IOException {
+        JsonElement element = element(reader);
+        try {
+            return DialogActionParser.parse(element);
+        } catch (RuntimeException e) {
+            throw error(reader, "Invalid action", e);
         }
-        JsonObject obj = element.getAsJsonObject();
-        return obj.entrySet().stream()
-                .filter(entry -> entry.getValue().isJsonPrimitive())
-                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().getAsString()));
     }
 
-    private static DialogTextStyle parseStyle(JsonObject object, String colorKey, String formatKey, String modifierKey) {
-        String color = object.has(colorKey) ? object.get(colorKey).getAsString() : null;
-        List<String> formats = new ArrayList<>();
-        if (object.has(formatKey)) {
-            JsonElement element = object.get(formatKey);
-            if (element.isJsonArray()) {
-                for (JsonElement format : element.getAsJsonArray()) {
-                    formats.add(format.getAsString());
+    private static DialogCondition condition(JsonReader reader) throws IOException {
+        JsonElement element = element(reader);
+        try {
+            return DialogConditionFactory.parse(element);
+        } catch (RuntimeException e) {
+            throw error(reader, "Invalid condition", e);
+        }
+    }
+
+    private static List<DialogCondition> conditions(JsonReader reader) throws IOException {
+        JsonElement element = element(reader);
+        List<DialogCondition> conditions = new ArrayList<>();
+        try {
+            if (element instanceof JsonArray array) {
+                for (JsonElement entry : array) {
+                    conditions.add(DialogConditionFactory.parse(entry));
                 }
-            } else if (element.isJsonPrimitive()) {
-                formats.add(element.getAsString());
+            } else {
+                conditions.add(DialogConditionFactory.parse(element));
             }
+        } catch (RuntimeException e) {
+            throw error(reader, "Invalid condition", e);
         }
-        String modifier = object.has(modifierKey) ? object.get(modifierKey).getAsString() : null;
-        return new DialogTextStyle(color, formats, modifier);
+        return conditions;
     }
 
-    private static String getString(JsonObject obj, String key, String fallback) {
-        if (obj.has(key) && obj.get(key).isJsonPrimitive()) {
-            return obj.get(key).getAsString();
-        }
-        return fallback;
+    /**
+     * Error for the value just read, located by the line and column after it when the reader reads
+     * text and by path otherwise.
+     */
+    private static JsonParseException error(JsonReader reader, String message, Throwable cause) {
+        String detail = cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+        return new JsonSyntaxException(message + " (" + location(reader) + "): " + detail, cause);
+    }
+
+    private static String location(JsonReader reader) {
+        String location = reader.toString();
+        int at = location.indexOf(" at ");
+        return at >= 0 ? location.substring(at + 1) : "at path " + reader.getPath();
     }
 
-    private static int getInt(JsonObject obj, String key, int fallback) {
-        if (obj.has(key) && obj.get(key).isJsonPrimitive()) {
-            JsonPrimitive primitive = obj.getAsJsonPrimitive(key);
-            if (primitive.isNumber()) {
+    private static int integer(Scalar value, int fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        switch (value.type()) {
+            case NUMBER -> {
+                try {
+                    return Integer.parseInt(value.text());
+                } catch (NumberFormatException ignored) {
+                }
+                try {
+                    return (int) Long.parseLong(value.text());
+                } catch (NumberFormatException ignored) {
+                }
                 try {
-                    return primitive.getAsInt();
+                    return new BigDecimal(value.text()).intValue();
                 } catch (NumberFormatException ignored) {
                 }
             }
-            if (primitive.isBoolean()) {
-                return primitive.getAsBoolean() ? 1 : 0;
+            case BOOLEAN -> {
+                return Boolean.parseBoolean(value.text()) ? 1 : 0;
             }
-            if (primitive.isString()) {
+            default -> {
                 try {
-                    return Integer.parseInt(primitive.getAsString());
+                    return Integer.parseInt(value.text());
                 } catch (NumberFormatException ignored) {
                 }
             }
@@ -325,31 +967,55 @@ public final class DialogJsonParser {
         return fallback;
     }
 
-    private static int getTimeTicks(JsonObject obj, String secondsKey, String fallbackKey) {
-        if (secondsKey != null && obj.has(secondsKey) && obj.get(secondsKey).isJsonPrimitive()) {
-            JsonPrimitive primitive = obj.getAsJsonPrimitive(secondsKey);
-            if (primitive.isNumber()) {
-                double seconds = primitive.getAsDouble();
-                if (Double.isFinite(seconds)) {
-                    return (int) Math.max(0, Math.round(seconds * 20.0));
+    /**
+     * Ticks from a value in seconds, falling back to a value in ticks.
+     */
+    private static int ticks(Scalar seconds, Scalar fallback) {
+        if (seconds != null) {
+            switch (seconds.type()) {
+                case NUMBER -> {
+                    double value = Double.parseDouble(seconds.text());
+                    if (Double.isFinite(value)) {
+                        return (int) Math.max(0, Math.round(value * 20.0));
+                    }
                 }
-            } else if (primitive.isBoolean()) {
-                return primitive.getAsBoolean() ? 20 : 0;
-            } else if (primitive.isString()) {
-                String raw = primitive.getAsString();
-                if (raw.equalsIgnoreCase("false")) {
-                    return 0;
+                case BOOLEAN -> {
+                    return Boolean.parseBoolean(seconds.text()) ? 20 : 0;
                 }
-                try {
-                    double seconds = Double.parseDouble(raw);
-                    return (int) Math.max(0, Math.round(seconds * 20.0));
-                } catch (NumberFormatException ignored) {
+                default -> {
+                    if (seconds.text().equalsIgnoreCase("false")) {
+                        return 0;
+                    }
+                    double value = seconds(seconds.text());
+                    if (!Double.isNaN(value)) {
+                        return (int) Math.max(0, Math.round(value * 20.0));
+                    }
                 }
             }
         }
-        if (fallbackKey == null) {
-            return 0;
+        return integer(fallback, 0);
+    }
+
+    /**
+     * Seconds in {@code text}: a plain number, or a number followed by {@code t}, {@code s} or
+     * {@code m}. {@code NaN} if it is neither.
+     */
+    private static double seconds(String text) {
+        String value = text.trim().toLowerCase(Locale.ROOT);
+        double scale = 1.0;
+        if (value.endsWith("t")) {
+            scale = 0.05;
+        } else if (value.endsWith("m")) {
+            scale = 60.0;
+        }
+        if (value.endsWith("t") || value.endsWith("s") || value.endsWith("m")) {
+            value = value.substring(0, value.length() - 1).trim();
+        }
+        try {
+            double number = Double.parseDouble(value) * scale;
+            return Double.isFinite(number) ? number : Double.NaN;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
         }
-        return getInt(obj, fallbackKey, 0);
     }
 }
@@ -1,13 +1,17 @@
 package ru.nlolik.dialog.config;
 
+import ru.nlolik.dialog.runtime.PlaceholderTemplate;
+
 public class DialogLine {
     private final String text;
+    private final PlaceholderTemplate textTemplate;
     private final DialogTextStyle style;
     private final int delayTicks;
     private final LoopSettings loop;
 
     public DialogLine(String text, DialogTextStyle style, int delayTicks, LoopSettings loop) {
         this.text = text;
+        this.textTemplate = PlaceholderTemplate.compile(text == null ? "" : text);
         this.style = style;
         this.delayTicks = Math.max(0, delayTicks);
         this.loop = loop;
@@ -17,6 +21,10 @@ public class DialogLine {
         return text;
     }
 
+    public PlaceholderTemplate textTemplate() {
+        return textTemplate;
+    }
+
     public DialogTextStyle style() {
         return style;
     }
@@ -0,0 +1,113 @@
+package ru.nlolik.dialog.config;
+
+import ru.nlolik.ChatDialogs;
+import ru.nlolik.dialog.event.DialogEventTrigger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Resolves node references of a parsed dialog to node indices so that the runtime never looks
+ * nodes up by name, and reports broken content at load time instead of when a player hits it.
+ */
+public final class DialogLinker {
+    private DialogLinker() {
+    }
+
+    public static DialogDefinition link(DialogDefinition definition) {
+        List<String> problems = new ArrayList<>();
+        List<DialogNode> nodes = definition.nodeList();
+        for (int i = 0; i < nodes.size(); i++) {
+            DialogNode node = nodes.get(i);
+            node.link(i, DialogNode.NONE);
+        }
+        if (definition.nodeIndex(definition.startNode()) == DialogNode.MISSING) {
+            problems.add("start node '" + definition.startNode() + "' does not exist");
+        }
+        for (DialogNode node : nodes) {
+            node.link(node.index(), resolve(definition, node.autoNext(), "auto_next of node '" + node.id() + "'", problems));
+            linkContent(definition, node, problems);
+        }
+        markZeroDelayCycles(nodes, problems);
+        for (String problem : problems) {
+            ChatDialogs.LOGGER.warn("Dialog '{}' ({}): {}", definition.id(), definition.sourceName(), problem);
+        }
+        return definition;
+    }
+
+    /**
+     * Resolves the button and branch targets of {@code node}. Problems are collected into
+     * {@code problems} unless it is {@code null}.
+     */
+    static void linkContent(DialogDefinition definition, DialogNode node, List<String> problems) {
+        for (DialogButton button : node.buttons()) {
+            button.link(resolve(definition, button.nextNode(), "button '" + button.id() + "' of node '" + node.id() + "'", problems),
+                    "button:" + definition.id() + "/" + node.id() + "/" + button.id());
+        }
+        for (ConditionalBranch branch : node.branches()) {
+            branch.link(resolve(definition, branch.nextNode(), "branch of node '" + node.id() + "'", problems));
+        }
+    }
+
+    public static void checkTriggers(Collection<DialogDefinition> definitions, Function<String, DialogDefinition> lookup) {
+        for (DialogDefinition definition : definitions) {
+            for (DialogEventTrigger trigger : definition.triggers()) {
+                if (trigger.dialogId() == null || trigger.dialogId().isBlank()) {
+                    continue;
+                }
+                DialogDefinition target = lookup.apply(trigger.dialogId());
+                if (target == null) {
+                    ChatDialogs.LOGGER.warn("Dialog '{}' ({}): trigger {} starts missing dialog '{}'", definition.id(), definition.sourceName(), trigger.type(), trigger.dialogId());
+                } else if (trigger.nodeId() != null && target.nodeIndex(trigger.nodeId()) == DialogNode.MISSING) {
+                    ChatDialogs.LOGGER.warn("Dialog '{}' ({}): trigger {} starts missing node '{}' of dialog '{}'", definition.id(), definition.sourceName(), trigger.type(), trigger.nodeId(), target.id());
+                }
+            }
+        }
+    }
+
+    private static int resolve(DialogDefinition definition, String target, String owner, List<String> problems) {
+        if (target == null || target.isBlank()) {
+            return DialogNode.NONE;
+        }
+        int index = definition.nodeIndex(target);
+        if (index == DialogNode.MISSING && problems != null) {
+            problems.add(owner + " points to missing node '" + target + "'");
+        }
+        return index;
+    }
+
+    private static void markZeroDelayCycles(List<DialogNode> nodes, List<String> problems) {
+        int[] state = new int[nodes.size()];
+        for (int start = 0; start < nodes.size(); start++) {
+            List<Integer> path = new ArrayList<>();
+            int current = start;
+            while (current >= 0 && state[current] == 0) {
+                state[current] = 1;
+                path.add(current);
+                current = zeroDelayNext(nodes.get(current));
+            }
+            if (current >= 0 && state[current] == 1) {
+                List<String> cycle = new ArrayList<>();
+                for (int i = path.indexOf(current); i < path.size(); i++) {
+                    DialogNode node = nodes.get(path.get(i));
+                    node.markZeroDelayCycle();
+                    cycle.add(node.id());
+                }
+                cycle.add(nodes.get(current).id());
+                problems.add("nodes " + String.join(" -> ", cycle) + " loop through auto_next without any delay; each step is delayed by one tick");
+            }
+            for (int index : path) {
+                state[index] = 2;
+            }
+        }
+    }
+
+    private static int zeroDelayNext(DialogNode node) {
+        if (node.autoNextIndex() < 0 || node.contentTicks() + node.autoNextDelay() > 0) {
+            return DialogNode.NONE;
+        }
+        return node.autoNextIndex();
+    }
+}
@@ -5,6 +5,9 @@ import ru.nlolik.dialog.action.DialogAction;
 import java.util.List;
 
 public class DialogNode {
+    public static final int NONE = -1;
+    public static final int MISSING = -2;
+
     private final String id;
     private final List<DialogLine> lines;
     private final List<DialogAction> entryActions;
@@ -15,6 +18,10 @@ public class DialogNode {
     private final int autoNextDelay;
     private final boolean closeOnFinish;
     private final int stopDelayTicks;
+    private final int contentTicks;
+    private int index = NONE;
+    private int autoNextIndex = NONE;
+    private boolean zeroDelayCycle;
 
     public DialogNode(String id,
                       List<DialogLine> lines,
@@ -36,6 +43,11 @@ public class DialogNode {
         this.autoNextDelay = Math.max(0, autoNextDelay);
         this.closeOnFinish = closeOnFinish;
         this.stopDelayTicks = Math.max(0, stopDelayTicks);
+        int ticks = this.startDelay;
+        for (DialogLine line : this.lines) {
+            ticks += Math.max(1, line.delayTicks());
+        }
+        this.contentTicks = ticks;
     }
 
     public String id() {
@@ -77,4 +89,40 @@ public class DialogNode {
     public int stopDelayTicks() {
         return stopDelayTicks;
     }
+
+    /**
+     * Ticks from entering the node until its last line is sent and its buttons appear.
+     */
+    public int contentTicks() {
+        return contentTicks;
+    }
+
+    /**
+     * Whether the lines, actions, buttons and branches of the node can be used. Nodes loaded lazily
+     * are built here; {@code false} means building failed and has been logged.
+     */
+    public boolean ready() {
+        return true;
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public int autoNextIndex() {
+        return autoNextIndex;
+    }
+
+    public boolean inZeroDelayCycle() {
+        return zeroDelayCycle;
+    }
+
+    void link(int index, int autoNextIndex) {
+        this.index = index;
+        this.autoNextIndex = autoNextIndex;
+    }
+
+    void markZeroDelayCycle() {
+        this.zeroDelayCycle = true;
+    }
 }
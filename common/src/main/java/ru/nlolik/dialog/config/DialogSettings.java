@@ -0,0 +1,192 @@
+package ru.nlolik.dialog.config;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+public final class DialogSettings {
+    public static final DialogSettings DEFAULT = new DialogSettings(0L, 100, 10, 0, Events.DEFAULT, false, Watch.DEFAULT, false);
+
+    private final long tickBudgetNanos;
+    private final int waitFallbackIntervalTicks;
+    private final int mobCountCacheTicks;
+    private final int mobCountGridRadius;
+    private final Events events;
+    private final boolean persistCooldowns;
+    private final Watch watch;
+    private final boolean lazyNodes;
+
+    /**
+     * Event dispatch settings. With {@code queued} on, loader events are handled on the next
+     * server tick within {@code tickBudgetNanos} instead of inside the loader callback, and at
+     * most {@code maxQueued} events wait at a time. Custom events raised by triggers nest at most
+     * {@code maxCascadeDepth} levels deep.
+     */
+    public record Events(boolean queued, long tickBudgetNanos, int maxQueued, int maxCascadeDepth) {
+        public static final Events DEFAULT = new Events(false, 2_000_000L, 10_000, 8);
+
+        public Events {
+            tickBudgetNanos = Math.max(0L, tickBudgetNanos);
+            maxQueued = Math.max(1, maxQueued);
+            maxCascadeDepth = Math.max(1, maxCascadeDepth);
+        }
+    }
+
+    /**
+     * File watching. With {@code enabled} on, dialog files that change on disk are re-read once no
+     * further change has arrived for {@code debounceMillis}, without a {@code /dialog reload}.
+     */
+    public record Watch(boolean enabled, int debounceMillis) {
+        public static final Watch DEFAULT = new Watch(false, 500);
+
+        public Watch {
+            debounceMillis = Math.max(0, debounceMillis);
+        }
+    }
+
+    public DialogSettings(long tickBudgetNanos, int waitFallbackIntervalTicks, int mobCountCacheTicks, int mobCountGridRadius, Events events, boolean persistCooldowns, Watch watch, boolean lazyNodes) {
+        this.tickBudgetNanos = Math.max(0L, tickBudgetNanos);
+        this.waitFallbackIntervalTicks = Math.max(1, waitFallbackIntervalTicks);
+        this.mobCountCacheTicks = Math.max(0, mobCountCacheTicks);
+        this.mobCountGridRadius = Math.max(0, mobCountGridRadius);
+        this.events = events == null ? Events.DEFAULT : events;
+        this.persistCooldowns = persistCooldowns;
+        this.watch = watch == null ? Watch.DEFAULT : watch;
+        this.lazyNodes = lazyNodes;
+    }
+
+    public long tickBudgetNanos() {
+        return tickBudgetNanos;
+    }
+
+    public int waitFallbackIntervalTicks() {
+        return waitFallbackIntervalTicks;
+    }
+
+    public int mobCountCacheTicks() {
+        return mobCountCacheTicks;
+    }
+
+    public int mobCountGridRadius() {
+        return mobCountGridRadius;
+    }
+
+    public Events events() {
+        return events;
+    }
+
+    /**
+     * Whether button, trigger and dialog cooldowns are saved with the world when the server stops.
+     */
+    public boolean persistCooldowns() {
+        return persistCooldowns;
+    }
+
+    public Watch watch() {
+        return watch;
+    }
+
+    /**
+     * Whether nodes are kept in encoded form after a reload and built on first entry. They are
+     * still parsed and checked once during the reload.
+     */
+    public boolean lazyNodes() {
+        return lazyNodes;
+    }
+
+    public static DialogSettings parse(JsonElement element) {
+        if (element == null || !element.isJsonObject()) {
+            return DEFAULT;
+        }
+        JsonObject root = element.getAsJsonObject();
+        JsonObject scheduler = section(root, "scheduler");
+        long tickBudget = getLong(scheduler, "tick_budget_nanos", DEFAULT.tickBudgetNanos);
+        JsonObject waitUntil = section(root, "wait_until");
+        long fallbackInterval = getLong(waitUntil, "fallback_interval_ticks", DEFAULT.waitFallbackIntervalTicks);
+        JsonObject placeholders = section(root, "placeholders");
+        long cacheTicks = getLong(placeholders, "mob_count_cache_ticks", DEFAULT.mobCountCacheTicks);
+        long gridRadius = getLong(placeholders, "mob_count_grid_radius", DEFAULT.mobCountGridRadius);
+        JsonObject eventSection = section(root, "events");
+        Events events = new Events(getBoolean(eventSection, "queued", Events.DEFAULT.queued()),
+                getLong(eventSection, "tick_budget_nanos", Events.DEFAULT.tickBudgetNanos()),
+                clamp(getLong(eventSection, "max_queued", Events.DEFAULT.maxQueued())),
+                clamp(getLong(eventSection, "max_cascade_depth", Events.DEFAULT.maxCascadeDepth())));
+        boolean persistCooldowns = getBoolean(section(root, "cooldowns"), "persist", DEFAULT.persistCooldowns);
+        JsonObject watchSection = section(root, "watch");
+        Watch watch = new Watch(getBoolean(watchSection, "enabled", Watch.DEFAULT.enabled()),
+                clamp(getLong(watchSection, "debounce_millis", Watch.DEFAULT.debounceMillis())));
+        boolean lazyNodes = getBoolean(section(root, "nodes"), "lazy", DEFAULT.lazyNodes);
+        return new DialogSettings(tickBudget, clamp(fallbackInterval), clamp(cacheTicks), clamp(gridRadius), events, persistCooldowns, watch, lazyNodes);
+    }
+
+    public JsonObject toJson() {
+        JsonObject root = new JsonObject();
+        JsonObject scheduler = new JsonObject();
+        scheduler.addProperty("tick_budget_nanos", tickBudgetNanos);
+        root.add("scheduler", scheduler);
+        JsonObject waitUntil = new JsonObject();
+        waitUntil.addProperty("fallback_interval_ticks", waitFallbackIntervalTicks);
+        root.add("wait_until", waitUntil);
+        JsonObject placeholders = new JsonObject();
+        placeholders.addProperty("mob_count_cache_ticks", mobCountCacheTicks);
+        placeholders.addProperty("mob_count_grid_radius", mobCountGridRadius);
+        root.add("placeholders", placeholders);
+        JsonObject eventSection = new JsonObject();
+        eventSection.addProperty("queued", events.queued());
+        eventSection.addProperty("tick_budget_nanos", events.tickBudgetNanos());
+        eventSection.addProperty("max_queued", events.maxQueued());
+        eventSection.addProperty("max_cascade_depth", events.maxCascadeDepth());
+        root.add("events", eventSection);
+        JsonObject cooldowns = new JsonObject();
+        cooldowns.addProperty("persist", persistCooldowns);
+        root.add("cooldowns", cooldowns);
+        JsonObject watchSection = new JsonObject();
+        watchSection.addProperty("enabled", watch.enabled());
+        watchSection.addProperty("debounce_millis", watch.debounceMillis());
+        root.add("watch", watchSection);
+        JsonObject nodes = new JsonObject();
+        nodes.addProperty("lazy", lazyNodes);
+        root.add("nodes", nodes);
+        return root;
+    }
+
+    private static int clamp(long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+
+    private static JsonObject section(JsonObject root, String key) {
+        if (root.has(key) && root.get(key).isJsonObject()) {
+            return root.getAsJsonObject(key);
+        }
+        return new JsonObject();
+    }
+
+    private static boolean getBoolean(JsonObject obj, String key, boolean fallback) {
+        if (obj.has(key) && obj.get(key).isJsonPrimitive()) {
+            JsonPrimitive primitive = obj.getAsJsonPrimitive(key);
+            if (primitive.isBoolean()) {
+                return primitive.getAsBoolean();
+            }
+            if (primitive.isString()) {
+                return Boolean.parseBoolean(primitive.getAsString());
+            }
+        }
+        return fallback;
+    }
+
+    private static long getLong(JsonObject obj, String key, long fallback) {
+        if (obj.has(key) && obj.get(key).isJsonPrimitive()) {
+            JsonPrimitive primitive = obj.getAsJsonPrimitive(key);
+            if (primitive.isNumber()) {
+                return primitive.getAsLong();
+            }
+            if (primitive.isString()) {
+                try {
+                    return Long.parseLong(primitive.getAsString());
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,116 @@
+package ru.nlolik.dialog.config;
+
+import ru.nlolik.ChatDialogs;
+import ru.nlolik.dialog.action.DialogAction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Node of a dialog loaded with {@code nodes.lazy}. It keeps the node in {@link BinaryJson} form
+ * together with what linking and scheduling need; lines, actions, buttons and branches are built
+ * from it the first time they are asked for, which is when a player enters the node, and then
+ * kept. The node was already parsed and linked once during the reload, so problems are reported
+ * there; should building fail anyway, {@link #ready()} reports it and the next entry tries again.
+ */
+final class LazyDialogNode extends DialogNode {
+    private final byte[] encoded;
+    private final int contentTicks;
+    private DialogDefinition definition;
+    private volatile DialogNode loaded;
+
+    private LazyDialogNode(DialogNode node, byte[] encoded) {
+        super(node.id(), List.of(), List.of(), List.of(), List.of(), node.startDelay(), node.autoNext(),
+                node.autoNextDelay(), node.closeOnFinish(), node.stopDelayTicks());
+        this.encoded = encoded;
+        this.contentTicks = node.contentTicks();
+        link(node.index(), node.autoNextIndex());
+        if (node.inZeroDelayCycle()) {
+            markZeroDelayCycle();
+        }
+    }
+
+    /**
+     * Replaces the nodes of a linked definition with lazy ones. {@code encoded} holds the encoded
+     * form of each node by id.
+     */
+    static DialogDefinition unload(DialogDefinition definition, Map<String, byte[]> encoded) {
+        Map<String, DialogNode> nodes = new LinkedHashMap<>();
+        List<LazyDialogNode> unloaded = new ArrayList<>();
+        definition.nodes().forEach((id, node) -> {
+            LazyDialogNode lazy = new LazyDialogNode(node, encoded.get(id));
+            nodes.put(id, lazy);
+            unloaded.add(lazy);
+        });
+        DialogDefinition result = new DialogDefinition(definition.id(), definition.displayName(), definition.sourceName(),
+                definition.startNode(), definition.initialDelay(), nodes, definition.triggers(), definition.cooldown());
+        for (LazyDialogNode node : unloaded) {
+            node.definition = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean ready() {
+        try {
+            loaded();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            ChatDialogs.LOGGER.error("Failed to load node '{}' of dialog '{}'", id(), definition.id(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public List<DialogLine> lines() {
+        return content().lines();
+    }
+
+    @Override
+    public List<DialogAction> entryActions() {
+        return content().entryActions();
+    }
+
+    @Override
+    public List<DialogButton> buttons() {
+        return content().buttons();
+    }
+
+    @Override
+    public List<ConditionalBranch> branches() {
+        return content().branches();
+    }
+
+    @Override
+    public int contentTicks() {
+        return contentTicks;
+    }
+
+    private DialogNode content() {
+        try {
+            return loaded();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private DialogNode loaded() throws IOException {
+        DialogNode node = loaded;
+        if (node == null) {
+            synchronized (this) {
+                node = loaded;
+                if (node == null) {
+                    node = DialogJsonParser.parseNode(BinaryJson.reader(encoded), id());
+                    node.link(index(), autoNextIndex());
+                    DialogLinker.linkContent(definition, node, null);
+                    loaded = node;
+                }
+            }
+        }
+        return node;
+    }
+}
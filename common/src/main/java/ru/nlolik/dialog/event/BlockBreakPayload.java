@@ -0,0 +1,55 @@
+package ru.nlolik.dialog.event;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.world.level.block.Block;
+
+final class BlockBreakPayload extends EventPayload {
+    private static final String[] KEYS = {"block", "x", "y", "z"};
+
+    private final Block block;
+    private final BlockPos pos;
+    private String blockId;
+
+    BlockBreakPayload(Block block, BlockPos pos) {
+        super("on_block_break");
+        this.block = block;
+        this.pos = pos.immutable();
+    }
+
+    @Override
+    protected Object value(String key) {
+        return switch (key) {
+            case "block" -> {
+                if (blockId == null) {
+                    blockId = BuiltInRegistries.BLOCK.getKey(block).toString();
+                }
+                yield blockId;
+            }
+            case "x" -> pos.getX();
+            case "y" -> pos.getY();
+            case "z" -> pos.getZ();
+            default -> null;
+        };
+    }
+
+    @Override
+    protected Object raw(String key) {
+        return key.equals("block") ? block.builtInRegistryHolder() : value(key);
+    }
+
+    @Override
+    protected double number(String key) {
+        return switch (key) {
+            case "x" -> pos.getX();
+            case "y" -> pos.getY();
+            case "z" -> pos.getZ();
+            default -> Double.NaN;
+        };
+    }
+
+    @Override
+    protected String[] keys() {
+        return KEYS;
+    }
+}
@@ -0,0 +1,43 @@
+package ru.nlolik.dialog.event;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.InteractionHand;
+
+final class BlockInteractPayload extends EventPayload {
+    private static final String[] KEYS = {"hand", "x", "y", "z"};
+
+    private final BlockPos pos;
+    private final InteractionHand hand;
+
+    BlockInteractPayload(BlockPos pos, InteractionHand hand) {
+        super("on_player_interact");
+        this.pos = pos.immutable();
+        this.hand = hand;
+    }
+
+    @Override
+    protected Object value(String key) {
+        return switch (key) {
+            case "hand" -> hand.name();
+            case "x" -> pos.getX();
+            case "y" -> pos.getY();
+            case "z" -> pos.getZ();
+            default -> null;
+        };
+    }
+
+    @Override
+    protected double number(String key) {
+        return switch (key) {
+            case "x" -> pos.getX();
+            case "y" -> pos.getY();
+            case "z" -> pos.getZ();
+            default -> Double.NaN;
+        };
+    }
+
+    @Override
+    protected String[] keys() {
+        return KEYS;
+    }
+}
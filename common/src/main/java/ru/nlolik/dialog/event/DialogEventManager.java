@@ -1,30 +1,62 @@
 package ru.nlolik.dialog.event;
 
 import net.minecraft.core.BlockPos;
-import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.InteractionHand;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.item.ItemStack;
-import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
 import ru.nlolik.ChatDialogs;
 import ru.nlolik.dialog.DialogManager;
-import ru.nlolik.dialog.action.DialogAction;
+import ru.nlolik.dialog.action.ActionRunner;
+import ru.nlolik.dialog.condition.ConditionDependency;
+import ru.nlolik.dialog.condition.DialogCondition;
 import ru.nlolik.dialog.config.DialogDefinition;
+import ru.nlolik.dialog.config.DialogSettings;
 import ru.nlolik.dialog.runtime.DialogContext;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Dispatches loader and custom events to triggers. Events run inline by default; in queued mode
+ * they are held with their payload and drained from {@link #tick()} within a time budget, so a
+ * burst of block breaks is spread over several ticks. Custom events raised while a trigger runs
+ * count as one level deeper and are dropped past the configured depth.
+ */
 public class DialogEventManager {
-    private final List<DialogEventTrigger> triggers = new CopyOnWriteArrayList<>();
+    public record Stats(int queued, int maxQueued, long dispatched, long dropped, long cascadeDropped) {
+    }
+
+    private record Pending(DialogEventType type, ServerPlayer player, Map<String, Object> data, String customName, int depth) {
+    }
+
+    private volatile TriggerIndex index = TriggerIndex.EMPTY;
+    private volatile long listeners;
+    private final RegionTracker regions = new RegionTracker(this);
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private DialogSettings.Events settings = DialogSettings.Events.DEFAULT;
+    private int depth;
+    private int maxQueued;
+    private long dispatched;
+    private long dropped;
+    private long cascadeDropped;
+
     public void clear() {
-        triggers.clear();
+        index = TriggerIndex.EMPTY;
+        listeners = 0L;
+        regions.clear();
+        queue.clear();
+        depth = 0;
+    }
+
+    public void configure(DialogSettings.Events settings) {
+        this.settings = settings;
     }
 
     public void updateTriggers(List<DialogDefinition> definitions) {
@@ -32,88 +64,149 @@ public class DialogEventManager {
         for (DialogDefinition definition : definitions) {
             collected.addAll(definition.triggers());
         }
-        triggers.clear();
-        triggers.addAll(collected);
+        TriggerIndex updated = new TriggerIndex(collected);
+        index = updated;
+        listeners = updated.typeMask();
+        regions.update(new RegionIndex(collected));
+    }
+
+    /**
+     * Returns whether any loaded trigger listens to {@code type}. Loader hooks check this before
+     * gathering anything for an event.
+     */
+    public boolean hasListeners(DialogEventType type) {
+        return (listeners & (1L << type.ordinal())) != 0;
     }
 
     public void handleBlockBreak(ServerPlayer player, BlockState state, BlockPos pos) {
-        Map<String, Object> data = new HashMap<>();
-        data.put("event_name", "on_block_break");
-        Block block = state.getBlock();
-        data.put("block", BuiltInRegistries.BLOCK.getKey(block).toString());
-        data.put("x", pos.getX());
-        data.put("y", pos.getY());
-        data.put("z", pos.getZ());
-        fire(DialogEventType.ON_BLOCK_BREAK, player, data);
+        if (hasListeners(DialogEventType.ON_BLOCK_BREAK)) {
+            dispatch(DialogEventType.ON_BLOCK_BREAK, player, new BlockBreakPayload(state.getBlock(), pos), null);
+        }
     }
 
     public void handleEntityDeath(ServerPlayer player, Entity entity) {
-        Map<String, Object> data = new HashMap<>();
-        data.put("event_name", "on_entity_death");
-        data.put("entity", entity.getType().builtInRegistryHolder().key().location().toString());
-        fire(DialogEventType.ON_ENTITY_DEATH, player, data);
+        if (hasListeners(DialogEventType.ON_ENTITY_DEATH)) {
+            dispatch(DialogEventType.ON_ENTITY_DEATH, player, new EntityDeathPayload(entity.getType()), null);
+        }
     }
 
     public void handleBlockInteract(ServerPlayer player, BlockPos pos, InteractionHand hand) {
-        Map<String, Object> data = new HashMap<>();
-        data.put("event_name", "on_player_interact");
-        data.put("hand", hand.name());
-        data.put("x", pos.getX());
-        data.put("y", pos.getY());
-        data.put("z", pos.getZ());
-        fire(DialogEventType.ON_PLAYER_INTERACT, player, data);
+        if (hasListeners(DialogEventType.ON_PLAYER_INTERACT)) {
+            dispatch(DialogEventType.ON_PLAYER_INTERACT, player, new BlockInteractPayload(pos, hand), null);
+        }
     }
 
     public void handleItemUse(ServerPlayer player, ItemStack stack) {
-        Map<String, Object> data = new HashMap<>();
-        data.put("event_name", "on_item_use");
-        data.put("item", stack.getItem().builtInRegistryHolder().key().location().toString());
-        fire(DialogEventType.ON_ITEM_USE, player, data);
+        if (hasListeners(DialogEventType.ON_ITEM_USE)) {
+            dispatch(DialogEventType.ON_ITEM_USE, player, new ItemUsePayload(stack.getItem()), null);
+        }
     }
 
-    public void triggerCustom(String name, ServerPlayer player, Map<String, Object> data) {
-        data = data == null ? new HashMap<>() : new HashMap<>(data);
-        data.putIfAbsent("event_name", name);
-        fire(DialogEventType.CUSTOM, player, data, name);
+    public void handleScoreChange(ServerPlayer player, String objective, int old, int score) {
+        if (old != score && hasListeners(DialogEventType.ON_SCORE_CHANGE)) {
+            dispatch(DialogEventType.ON_SCORE_CHANGE, player, new ScoreChangePayload(objective, old, score), null);
+        }
     }
 
-    private void fire(DialogEventType type, ServerPlayer player, Map<String, Object> data) {
-        fire(type, player, data, null);
+    void handleRegion(DialogEventType type, ServerPlayer player, DialogRegion region, int x, int y, int z, long ticks) {
+        if (hasListeners(type)) {
+            dispatch(type, player, new RegionPayload(type, region, x, y, z, ticks), null);
+        }
     }
 
-    private void fire(DialogEventType type, ServerPlayer player, Map<String, Object> data, String customName) {
-        for (DialogEventTrigger trigger : triggers) {
-            if (trigger.type() != type) {
-                continue;
-            }
-            if (customName != null && trigger.type() == DialogEventType.CUSTOM && !customName.equalsIgnoreCase(trigger.name())) {
-                continue;
+    public void triggerCustom(String name, ServerPlayer player, Map<String, Object> data) {
+        if (hasListeners(DialogEventType.CUSTOM)) {
+            data = data == null ? new HashMap<>() : new HashMap<>(data);
+            data.putIfAbsent("event_name", name);
+            dispatch(DialogEventType.CUSTOM, player, data, name);
+        }
+        DialogManager.waits().notify(player.getUUID(), ConditionDependency.event(name));
+    }
+
+    /**
+     * Checks player regions, then runs queued events until the queue is empty or the tick budget
+     * is spent. At least one event runs per call.
+     */
+    public void tick() {
+        MinecraftServer server = DialogManager.server();
+        if (server != null) {
+            regions.tick(server);
+        }
+        long started = System.nanoTime();
+        long budget = settings.tickBudgetNanos();
+        boolean ranAny = false;
+        Pending pending;
+        while ((pending = queue.peek()) != null) {
+            if (budget > 0 && ranAny && System.nanoTime() - started >= budget) {
+                break;
             }
-            if (!matchesFilters(trigger.filters(), data)) {
-                continue;
+            queue.poll();
+            ranAny = true;
+            if (!pending.player().isRemoved()) {
+                fire(pending.type(), pending.player(), pending.data(), pending.customName(), pending.depth());
             }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(queue.size(), maxQueued, dispatched, dropped, cascadeDropped);
+    }
+
+    public void resetStats() {
+        maxQueued = queue.size();
+        dispatched = 0;
+        dropped = 0;
+        cascadeDropped = 0;
+    }
+
+    private void dispatch(DialogEventType type, ServerPlayer player, Map<String, Object> data, String customName) {
+        int eventDepth = depth + 1;
+        if (eventDepth > settings.maxCascadeDepth()) {
+            cascadeDropped++;
+            ChatDialogs.LOGGER.warn("Dropping event '{}' for {}: custom events nested deeper than {}", customName != null ? customName : type, player.getScoreboardName(), settings.maxCascadeDepth());
+            return;
+        }
+        if (!settings.queued()) {
+            fire(type, player, data, customName, eventDepth);
+            return;
+        }
+        if (queue.size() >= settings.maxQueued()) {
+            dropped++;
+            return;
+        }
+        queue.add(new Pending(type, player, data, customName, eventDepth));
+        maxQueued = Math.max(maxQueued, queue.size());
+    }
+
+    private void fire(DialogEventType type, ServerPlayer player, Map<String, Object> data, String customName, int eventDepth) {
+        int outer = depth;
+        depth = eventDepth;
+        try {
+            fire(type, player, data, customName);
+        } finally {
+            depth = outer;
+        }
+    }
+
+    private void fire(DialogEventType type, ServerPlayer player, Map<String, Object> data, String customName) {
+        dispatched++;
+        for (DialogEventTrigger trigger : index.match(type, customName, data)) {
             DialogDefinition definition = trigger.dialogId() == null ? null : DialogManager.definitions().get(trigger.dialogId());
             DialogContext context = new DialogContext(null, definition, player, player.getServer(), data);
-            if (trigger.conditions().stream().anyMatch(condition -> !condition.test(context))) {
+            if (!passes(trigger.conditions(), context) || DialogManager.cooldowns().acquire(player.getUUID(), trigger.cooldown()) > 0) {
                 continue;
             }
-            for (DialogAction action : trigger.actions()) {
-                try {
-                    action.execute(context);
-                } catch (Exception e) {
-                    ChatDialogs.LOGGER.error("Failed to execute trigger action", e);
+            ActionRunner.run(trigger.actions(), context, "Failed to execute trigger action", () -> {
+                if (trigger.dialogId() != null && !trigger.dialogId().isBlank()) {
+                    DialogManager.startDialog(trigger.dialogId(), player, UUID.randomUUID().toString(), trigger.nodeId());
                 }
-            }
-            if (trigger.dialogId() != null && !trigger.dialogId().isBlank()) {
-                DialogManager.startDialog(trigger.dialogId(), player, UUID.randomUUID().toString(), trigger.nodeId());
-            }
+            });
         }
     }
 
-    private boolean matchesFilters(Map<String, String> filters, Map<String, Object> data) {
-        for (Map.Entry<String, String> entry : filters.entrySet()) {
-            Object value = data.get(entry.getKey());
-            if (value == null || !value.toString().equalsIgnoreCase(entry.getValue())) {
+    private static boolean passes(List<DialogCondition> conditions, DialogContext context) {
+        for (DialogCondition condition : conditions) {
+            if (!condition.test(context)) {
                 return false;
             }
         }
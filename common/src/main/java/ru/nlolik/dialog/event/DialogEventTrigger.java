@@ -2,7 +2,10 @@ package ru.nlolik.dialog.event;
 
 import ru.nlolik.dialog.action.DialogAction;
 import ru.nlolik.dialog.condition.DialogCondition;
+import ru.nlolik.dialog.config.Cooldown;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -14,6 +17,13 @@ public class DialogEventTrigger {
     private final List<DialogCondition> conditions;
     private final List<DialogAction> actions;
     private final Map<String, String> filters;
+    private final FilterMatcher[] matchers;
+    private final String[] filterKeys;
+    private final String[] filterValues;
+    private final Cooldown cooldown;
+    private final DialogRegion region;
+    private final String objective;
+    private final ScoreThreshold threshold;
 
     public DialogEventTrigger(DialogEventType type,
                               String name,
@@ -22,13 +32,79 @@ public class DialogEventTrigger {
                               List<DialogCondition> conditions,
                               List<DialogAction> actions,
                               Map<String, String> filters) {
+        this(type, name, dialogId, nodeId, conditions, actions, filters, Cooldown.NONE);
+    }
+
+    public DialogEventTrigger(DialogEventType type,
+                              String name,
+                              String dialogId,
+                              String nodeId,
+                              List<DialogCondition> conditions,
+                              List<DialogAction> actions,
+                              Map<String, String> filters,
+                              Cooldown cooldown) {
+        this(type, name, dialogId, nodeId, conditions, actions, filters, cooldown, null, null);
+    }
+
+    public DialogEventTrigger(DialogEventType type,
+                              String name,
+                              String dialogId,
+                              String nodeId,
+                              List<DialogCondition> conditions,
+                              List<DialogAction> actions,
+                              Map<String, String> filters,
+                              Cooldown cooldown,
+                              DialogRegion region,
+                              ScoreThreshold threshold) {
+        this(type, name, dialogId, nodeId, conditions, actions, filters, cooldown, region, null, threshold);
+    }
+
+    /**
+     * A trigger with a {@code region} only matches events of that region; the region key is added
+     * to its filters. An {@code objective} limits score changes to that objective, compared
+     * case-sensitively like the scoreboard does, and a {@code threshold} to those that cross it.
+     */
+    public DialogEventTrigger(DialogEventType type,
+                              String name,
+                              String dialogId,
+                              String nodeId,
+                              List<DialogCondition> conditions,
+                              List<DialogAction> actions,
+                              Map<String, String> filters,
+                              Cooldown cooldown,
+                              DialogRegion region,
+                              String objective,
+                              ScoreThreshold threshold) {
         this.type = type;
         this.name = name;
         this.dialogId = dialogId;
         this.nodeId = nodeId;
         this.conditions = List.copyOf(conditions);
         this.actions = List.copyOf(actions);
+        if (region != null) {
+            Map<String, String> withRegion = new HashMap<>(filters);
+            withRegion.put("region", region.key());
+            filters = withRegion;
+        }
         this.filters = Map.copyOf(filters);
+        this.matchers = new FilterMatcher[this.filters.size()];
+        List<String> indexKeys = new ArrayList<>();
+        List<String> indexValues = new ArrayList<>();
+        int next = 0;
+        for (Map.Entry<String, String> filter : this.filters.entrySet()) {
+            FilterMatcher matcher = FilterMatcher.compile(filter.getKey(), filter.getValue());
+            matchers[next++] = matcher;
+            if (matcher.indexValue() != null) {
+                indexKeys.add(filter.getKey());
+                indexValues.add(matcher.indexValue());
+            }
+        }
+        this.filterKeys = indexKeys.toArray(String[]::new);
+        this.filterValues = indexValues.toArray(String[]::new);
+        this.cooldown = cooldown;
+        this.region = region;
+        this.objective = objective;
+        this.threshold = threshold;
     }
 
     public DialogEventType type() {
@@ -58,4 +134,54 @@ public class DialogEventTrigger {
     public Map<String, String> filters() {
         return filters;
     }
+
+    public Cooldown cooldown() {
+        return cooldown;
+    }
+
+    public DialogRegion region() {
+        return region;
+    }
+
+    public String objective() {
+        return objective;
+    }
+
+    public ScoreThreshold threshold() {
+        return threshold;
+    }
+
+    /**
+     * Values of the plain equality filters lowercased, in the same order as {@link #filterKeys()}.
+     * Globs, tags and ranges are not listed.
+     */
+    String[] filterValues() {
+        return filterValues;
+    }
+
+    String[] filterKeys() {
+        return filterKeys;
+    }
+
+    boolean matchesFilters(Map<String, Object> data) {
+        for (FilterMatcher matcher : matchers) {
+            if (!matcher.matches(data)) {
+                return false;
+            }
+        }
+        if (objective != null && !objective.equals(objective(data))) {
+            return false;
+        }
+        if (threshold != null) {
+            return data instanceof ScoreChangePayload change && threshold.crossed(change.old(), change.score());
+        }
+        return true;
+    }
+
+    /**
+     * Objective of a score change event, or {@code null} for other events.
+     */
+    static Object objective(Map<String, Object> data) {
+        return data instanceof ScoreChangePayload change ? change.objective() : data.get("objective");
+    }
 }
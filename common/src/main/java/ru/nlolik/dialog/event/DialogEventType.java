@@ -8,6 +8,10 @@ public enum DialogEventType {
     ON_ENTITY_DEATH,
     ON_PLAYER_INTERACT,
     ON_ITEM_USE,
+    ON_REGION_ENTER,
+    ON_REGION_LEAVE,
+    ON_REGION_STAY,
+    ON_SCORE_CHANGE,
     CUSTOM;
 
     public static DialogEventType from(String value) {
@@ -20,6 +24,10 @@ public enum DialogEventType {
             case "on_entity_death", "entity_death" -> ON_ENTITY_DEATH;
             case "on_player_interact", "player_interact" -> ON_PLAYER_INTERACT;
             case "on_item_use", "item_use" -> ON_ITEM_USE;
+            case "on_region_enter", "region_enter" -> ON_REGION_ENTER;
+            case "on_region_leave", "region_leave" -> ON_REGION_LEAVE;
+            case "on_region_stay", "region_stay" -> ON_REGION_STAY;
+            case "on_score_change", "score_change" -> ON_SCORE_CHANGE;
             default -> CUSTOM;
         };
     }
@@ -0,0 +1,100 @@
+package ru.nlolik.dialog.event;
+
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+
+/**
+ * Cuboid or sphere area of one dimension used by the region triggers. Cuboid bounds are
+ * inclusive block coordinates; a sphere contains the blocks whose centre lies within its radius.
+ */
+public final class DialogRegion {
+    private final String key;
+    private final ResourceKey<Level> dimension;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+    private final boolean sphere;
+    private final double centerX;
+    private final double centerY;
+    private final double centerZ;
+    private final double radiusSquared;
+    private final int stayInterval;
+
+    private DialogRegion(String key, ResourceKey<Level> dimension, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                         boolean sphere, double centerX, double centerY, double centerZ, double radius, int stayInterval) {
+        this.key = key;
+        this.dimension = dimension;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.sphere = sphere;
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.centerZ = centerZ;
+        this.radiusSquared = radius * radius;
+        this.stayInterval = Math.max(1, stayInterval);
+    }
+
+    public static DialogRegion cuboid(String key, ResourceKey<Level> dimension, int x1, int y1, int z1, int x2, int y2, int z2, int stayInterval) {
+        return new DialogRegion(key, dimension, Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2),
+                Math.max(x1, x2), Math.max(y1, y2), Math.max(z1, z2), false, 0, 0, 0, 0, stayInterval);
+    }
+
+    public static DialogRegion sphere(String key, ResourceKey<Level> dimension, double x, double y, double z, double radius, int stayInterval) {
+        double r = Math.max(0, radius);
+        return new DialogRegion(key, dimension,
+                (int) Math.floor(x - r), (int) Math.floor(y - r), (int) Math.floor(z - r),
+                (int) Math.floor(x + r), (int) Math.floor(y + r), (int) Math.floor(z + r),
+                true, x, y, z, r, stayInterval);
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public ResourceKey<Level> dimension() {
+        return dimension;
+    }
+
+    /**
+     * Ticks between two {@code on_region_stay} events while a player remains inside.
+     */
+    public int stayInterval() {
+        return stayInterval;
+    }
+
+    public boolean contains(int x, int y, int z) {
+        if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+            return false;
+        }
+        if (!sphere) {
+            return true;
+        }
+        double dx = x + 0.5 - centerX;
+        double dy = y + 0.5 - centerY;
+        double dz = z + 0.5 - centerZ;
+        return dx * dx + dy * dy + dz * dz <= radiusSquared;
+    }
+
+    int minChunkX() {
+        return minX >> 4;
+    }
+
+    int minChunkZ() {
+        return minZ >> 4;
+    }
+
+    int maxChunkX() {
+        return maxX >> 4;
+    }
+
+    int maxChunkZ() {
+        return maxZ >> 4;
+    }
+}
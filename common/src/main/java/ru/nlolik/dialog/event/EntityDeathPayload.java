@@ -0,0 +1,36 @@
+package ru.nlolik.dialog.event;
+
+import net.minecraft.world.entity.EntityType;
+
+final class EntityDeathPayload extends EventPayload {
+    private static final String[] KEYS = {"entity"};
+
+    private final EntityType<?> type;
+    private String entityId;
+
+    EntityDeathPayload(EntityType<?> type) {
+        super("on_entity_death");
+        this.type = type;
+    }
+
+    @Override
+    protected Object value(String key) {
+        if (!key.equals("entity")) {
+            return null;
+        }
+        if (entityId == null) {
+            entityId = type.builtInRegistryHolder().key().location().toString();
+        }
+        return entityId;
+    }
+
+    @Override
+    protected Object raw(String key) {
+        return key.equals("entity") ? type.builtInRegistryHolder() : null;
+    }
+
+    @Override
+    protected String[] keys() {
+        return KEYS;
+    }
+}
@@ -0,0 +1,76 @@
+package ru.nlolik.dialog.event;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only key/value view over a typed event, used as the event data of trigger filters and
+ * {@code {event.<key>}} placeholders. Values are computed when they are read, so building a
+ * payload costs no more than capturing the event's fields.
+ */
+public abstract class EventPayload extends AbstractMap<String, Object> {
+    private final String eventName;
+    private Set<Map.Entry<String, Object>> entries;
+
+    protected EventPayload(String eventName) {
+        this.eventName = eventName;
+    }
+
+    /**
+     * Returns the value for {@code key}, or {@code null} if this event has no such key.
+     */
+    protected abstract Object value(String key);
+
+    /**
+     * Keys this event provides besides {@code event_name}.
+     */
+    protected abstract String[] keys();
+
+    /**
+     * Value for trigger filters. Registry entries are returned as their holder instead of an id
+     * string; by default this is {@link #value(String)}.
+     */
+    protected Object raw(String key) {
+        return value(key);
+    }
+
+    /**
+     * Numeric value for range filters without boxing, or {@code NaN} if {@code key} is not a number.
+     */
+    protected double number(String key) {
+        return raw(key) instanceof Number number ? number.doubleValue() : Double.NaN;
+    }
+
+    final Object filterValue(String key) {
+        return key.equals("event_name") ? eventName : raw(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!(key instanceof String name)) {
+            return null;
+        }
+        return name.equals("event_name") ? eventName : value(name);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        if (entries == null) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("event_name", eventName);
+            for (String key : keys()) {
+                values.put(key, value(key));
+            }
+            entries = Collections.unmodifiableMap(values).entrySet();
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,255 @@
+package ru.nlolik.dialog.event;
+
+import net.minecraft.core.Holder;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.TagKey;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One trigger filter compiled at load time. Filter values are read as:
+ * <ul>
+ *     <li>{@code #namespace:path} - block, item or entity type tag;</li>
+ *     <li>{@code a..b}, {@code ..b}, {@code a..}, {@code <b}, {@code >=a} or a plain number - numeric range;</li>
+ *     <li>text with {@code *} or {@code ?} - case-insensitive glob; without a {@code :} it matches the id path;</li>
+ *     <li>anything else - case-insensitive equality; registry ids default to {@code minecraft:}.</li>
+ * </ul>
+ * Typed payloads hand registry entries over as holders and numbers unboxed, so matching them
+ * neither allocates nor converts values to strings.
+ */
+abstract class FilterMatcher {
+    final String key;
+
+    private FilterMatcher(String key) {
+        this.key = key;
+    }
+
+    static FilterMatcher compile(String key, String value) {
+        String text = value.trim();
+        if (text.startsWith("#")) {
+            ResourceLocation id = ResourceLocation.tryParse(text.substring(1));
+            if (id != null) {
+                return new Tag(key, id);
+            }
+        }
+        Range range = Range.parse(key, text);
+        if (range != null) {
+            return range;
+        }
+        if (text.indexOf('*') >= 0 || text.indexOf('?') >= 0) {
+            return new Glob(key, text.toLowerCase(Locale.ROOT));
+        }
+        return new Exact(key, text.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Lowercased value for the trigger index, or {@code null} if this filter cannot be looked up
+     * by value.
+     */
+    String indexValue() {
+        return null;
+    }
+
+    boolean matches(Map<String, Object> data) {
+        if (data instanceof EventPayload payload) {
+            return matchesPayload(payload);
+        }
+        Object value = data.get(key);
+        return value != null && test(value);
+    }
+
+    boolean matchesPayload(EventPayload payload) {
+        Object value = payload.filterValue(key);
+        return value != null && test(value);
+    }
+
+    abstract boolean test(Object value);
+
+    private static final class Exact extends FilterMatcher {
+        private final String text;
+        private final ResourceLocation id;
+
+        Exact(String key, String text) {
+            super(key);
+            this.text = text;
+            this.id = ResourceLocation.tryParse(text);
+        }
+
+        @Override
+        String indexValue() {
+            return text;
+        }
+
+        @Override
+        boolean test(Object value) {
+            if (value instanceof Holder<?> holder) {
+                return id != null && holder.is(id);
+            }
+            if (value instanceof String string) {
+                return string.equalsIgnoreCase(text);
+            }
+            return value.toString().equalsIgnoreCase(text);
+        }
+    }
+
+    private static final class Glob extends FilterMatcher {
+        private final String pattern;
+        private final boolean withNamespace;
+
+        Glob(String key, String pattern) {
+            super(key);
+            this.pattern = pattern;
+            this.withNamespace = pattern.indexOf(':') >= 0;
+        }
+
+        @Override
+        boolean test(Object value) {
+            if (value instanceof Holder.Reference<?> reference) {
+                ResourceLocation id = reference.key().location();
+                return withNamespace ? glob(id.getNamespace(), id.getPath()) : glob(id.getPath(), null);
+            }
+            String text = value instanceof String string ? string : value.toString();
+            int colon = withNamespace ? -1 : text.indexOf(':');
+            return colon < 0 ? glob(text, null) : glob(text.substring(colon + 1), null);
+        }
+
+        /**
+         * Matches the pattern against {@code first}, or against {@code first:second} when
+         * {@code second} is given, without building the joined string.
+         */
+        private boolean glob(String first, String second) {
+            int length = second == null ? first.length() : first.length() + 1 + second.length();
+            int p = 0;
+            int t = 0;
+            int star = -1;
+            int resume = 0;
+            while (t < length) {
+                char c = Character.toLowerCase(charAt(first, second, t));
+                if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == c)) {
+                    p++;
+                    t++;
+                } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                    star = p++;
+                    resume = t;
+                } else if (star >= 0) {
+                    p = star + 1;
+                    t = ++resume;
+                } else {
+                    return false;
+                }
+            }
+            while (p < pattern.length() && pattern.charAt(p) == '*') {
+                p++;
+            }
+            return p == pattern.length();
+        }
+
+        private static char charAt(String first, String second, int index) {
+            if (index < first.length()) {
+                return first.charAt(index);
+            }
+            return index == first.length() ? ':' : second.charAt(index - first.length() - 1);
+        }
+    }
+
+    private static final class Tag extends FilterMatcher {
+        private final TagKey<?> blockTag;
+        private final TagKey<?> itemTag;
+        private final TagKey<?> entityTag;
+
+        Tag(String key, ResourceLocation id) {
+            super(key);
+            this.blockTag = TagKey.create(Registries.BLOCK, id);
+            this.itemTag = TagKey.create(Registries.ITEM, id);
+            this.entityTag = TagKey.create(Registries.ENTITY_TYPE, id);
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        boolean test(Object value) {
+            if (!(value instanceof Holder holder)) {
+                return false;
+            }
+            return holder.is(blockTag) || holder.is(itemTag) || holder.is(entityTag);
+        }
+    }
+
+    private static final class Range extends FilterMatcher {
+        private final double min;
+        private final double max;
+        private final boolean minInclusive;
+        private final boolean maxInclusive;
+
+        private Range(String key, double min, boolean minInclusive, double max, boolean maxInclusive) {
+            super(key);
+            this.min = min;
+            this.max = max;
+            this.minInclusive = minInclusive;
+            this.maxInclusive = maxInclusive;
+        }
+
+        static Range parse(String key, String text) {
+            if (text.startsWith("<=") || text.startsWith(">=")) {
+                double bound = number(text.substring(2));
+                if (Double.isNaN(bound)) {
+                    return null;
+                }
+                return text.charAt(0) == '<'
+                        ? new Range(key, Double.NEGATIVE_INFINITY, true, bound, true)
+                        : new Range(key, bound, true, Double.POSITIVE_INFINITY, true);
+            }
+            if (text.startsWith("<") || text.startsWith(">")) {
+                double bound = number(text.substring(1));
+                if (Double.isNaN(bound)) {
+                    return null;
+                }
+                return text.charAt(0) == '<'
+                        ? new Range(key, Double.NEGATIVE_INFINITY, true, bound, false)
+                        : new Range(key, bound, false, Double.POSITIVE_INFINITY, true);
+            }
+            int dots = text.indexOf("..");
+            if (dots >= 0) {
+                String low = text.substring(0, dots).trim();
+                String high = text.substring(dots + 2).trim();
+                double min = low.isEmpty() ? Double.NEGATIVE_INFINITY : number(low);
+                double max = high.isEmpty() ? Double.POSITIVE_INFINITY : number(high);
+                if (Double.isNaN(min) || Double.isNaN(max) || low.isEmpty() && high.isEmpty()) {
+                    return null;
+                }
+                return new Range(key, min, true, max, true);
+            }
+            double exact = number(text);
+            return Double.isNaN(exact) ? null : new Range(key, exact, true, exact, true);
+        }
+
+        private static double number(String text) {
+            try {
+                return Double.parseDouble(text.trim());
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        @Override
+        boolean matchesPayload(EventPayload payload) {
+            return inRange(payload.number(key));
+        }
+
+        @Override
+        boolean test(Object value) {
+            if (value instanceof Number number) {
+                return inRange(number.doubleValue());
+            }
+            return inRange(number(value.toString()));
+        }
+
+        private boolean inRange(double value) {
+            if (Double.isNaN(value)) {
+                return false;
+            }
+            return (minInclusive ? value >= min : value > min) && (maxInclusive ? value <= max : value < max);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ru.nlolik.dialog.event;
+
+import net.minecraft.world.item.Item;
+
+final class ItemUsePayload extends EventPayload {
+    private static final String[] KEYS = {"item"};
+
+    private final Item item;
+    private String itemId;
+
+    ItemUsePayload(Item item) {
+        super("on_item_use");
+        this.item = item;
+    }
+
+    @Override
+    protected Object value(String key) {
+        if (!key.equals("item")) {
+            return null;
+        }
+        if (itemId == null) {
+            itemId = item.builtInRegistryHolder().key().location().toString();
+        }
+        return itemId;
+    }
+
+    @Override
+    protected Object raw(String key) {
+        return key.equals("item") ? item.builtInRegistryHolder() : null;
+    }
+
+    @Override
+    protected String[] keys() {
+        return KEYS;
+    }
+}
@@ -0,0 +1,105 @@
+package ru.nlolik.dialog.event;
+
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regions of the loaded triggers, filed per dimension under every chunk they overlap. Regions
+ * spanning more than {@link #MAX_INDEXED_CHUNKS} chunks are kept in a per-dimension list that is
+ * checked on every lookup instead of being copied into each chunk.
+ */
+final class RegionIndex {
+    static final RegionIndex EMPTY = new RegionIndex(List.of());
+
+    private static final int MAX_INDEXED_CHUNKS = 4096;
+    private static final DialogRegion[] NONE = new DialogRegion[0];
+
+    private static final class Dimension {
+        final Map<Long, DialogRegion[]> chunks = new HashMap<>();
+        DialogRegion[] large = NONE;
+    }
+
+    private final Map<ResourceKey<Level>, Dimension> dimensions = new HashMap<>();
+    private final Map<String, DialogRegion> byKey = new LinkedHashMap<>();
+    private final boolean hasStay;
+
+    RegionIndex(List<DialogEventTrigger> triggers) {
+        boolean stay = false;
+        for (DialogEventTrigger trigger : triggers) {
+            DialogRegion region = trigger.region();
+            if (region == null) {
+                continue;
+            }
+            byKey.putIfAbsent(region.key(), region);
+            stay |= trigger.type() == DialogEventType.ON_REGION_STAY;
+        }
+        hasStay = stay;
+        Map<ResourceKey<Level>, Map<Long, List<DialogRegion>>> chunks = new HashMap<>();
+        Map<ResourceKey<Level>, List<DialogRegion>> large = new HashMap<>();
+        for (DialogRegion region : byKey.values()) {
+            long width = (long) region.maxChunkX() - region.minChunkX() + 1;
+            long depth = (long) region.maxChunkZ() - region.minChunkZ() + 1;
+            if (width * depth > MAX_INDEXED_CHUNKS) {
+                large.computeIfAbsent(region.dimension(), k -> new ArrayList<>()).add(region);
+                continue;
+            }
+            Map<Long, List<DialogRegion>> perChunk = chunks.computeIfAbsent(region.dimension(), k -> new HashMap<>());
+            for (int x = region.minChunkX(); x <= region.maxChunkX(); x++) {
+                for (int z = region.minChunkZ(); z <= region.maxChunkZ(); z++) {
+                    perChunk.computeIfAbsent(ChunkPos.asLong(x, z), k -> new ArrayList<>()).add(region);
+                }
+            }
+        }
+        chunks.forEach((key, perChunk) -> {
+            Dimension dimension = dimensions.computeIfAbsent(key, k -> new Dimension());
+            perChunk.forEach((chunk, regions) -> dimension.chunks.put(chunk, regions.toArray(DialogRegion[]::new)));
+        });
+        large.forEach((key, regions) -> dimensions.computeIfAbsent(key, k -> new Dimension()).large = regions.toArray(DialogRegion[]::new));
+    }
+
+    boolean isEmpty() {
+        return byKey.isEmpty();
+    }
+
+    /**
+     * Whether any trigger listens to {@code on_region_stay}; without one, players that stand still
+     * cost nothing.
+     */
+    boolean hasStay() {
+        return hasStay;
+    }
+
+    DialogRegion get(String key) {
+        return byKey.get(key);
+    }
+
+    /**
+     * Collects the regions that contain the given block into {@code out}.
+     */
+    void collect(ResourceKey<Level> dimensionKey, int x, int y, int z, List<DialogRegion> out) {
+        Dimension dimension = dimensions.get(dimensionKey);
+        if (dimension == null) {
+            return;
+        }
+        DialogRegion[] regions = dimension.chunks.get(ChunkPos.asLong(x >> 4, z >> 4));
+        if (regions != null) {
+            for (DialogRegion region : regions) {
+                if (region.contains(x, y, z)) {
+                    out.add(region);
+                }
+            }
+        }
+        for (DialogRegion region : dimension.large) {
+            if (region.contains(x, y, z)) {
+                out.add(region);
+            }
+        }
+    }
+}
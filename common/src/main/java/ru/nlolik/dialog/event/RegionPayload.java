@@ -0,0 +1,51 @@
+package ru.nlolik.dialog.event;
+
+import java.util.Locale;
+
+final class RegionPayload extends EventPayload {
+    private static final String[] KEYS = {"region", "dimension", "x", "y", "z", "ticks"};
+
+    private final DialogRegion region;
+    private final int x;
+    private final int y;
+    private final int z;
+    private final long ticks;
+
+    RegionPayload(DialogEventType type, DialogRegion region, int x, int y, int z, long ticks) {
+        super(type.name().toLowerCase(Locale.ROOT));
+        this.region = region;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.ticks = ticks;
+    }
+
+    @Override
+    protected Object value(String key) {
+        return switch (key) {
+            case "region" -> region.key();
+            case "dimension" -> region.dimension().location().toString();
+            case "x" -> x;
+            case "y" -> y;
+            case "z" -> z;
+            case "ticks" -> ticks;
+            default -> null;
+        };
+    }
+
+    @Override
+    protected double number(String key) {
+        return switch (key) {
+            case "x" -> x;
+            case "y" -> y;
+            case "z" -> z;
+            case "ticks" -> ticks;
+            default -> Double.NaN;
+        };
+    }
+
+    @Override
+    protected String[] keys() {
+        return KEYS;
+    }
+}
@@ -0,0 +1,148 @@
+package ru.nlolik.dialog.event;
+
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.util.Mth;
+import net.minecraft.world.level.Level;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Remembers which regions each online player is in. A player's block position is compared once
+ * per tick; only when it changes are the regions of the player's current chunk tested, and the
+ * difference to the previous set becomes enter and leave events. Stay events are timed from the
+ * tick the player entered.
+ */
+final class RegionTracker {
+    private static final int SWEEP_INTERVAL = 200;
+
+    private static final class Inside {
+        DialogRegion region;
+        final long entered;
+
+        Inside(DialogRegion region, long entered) {
+            this.region = region;
+            this.entered = entered;
+        }
+    }
+
+    private static final class Presence {
+        final Map<String, Inside> inside = new LinkedHashMap<>();
+        ResourceKey<Level> dimension;
+        int x;
+        int y;
+        int z;
+        boolean dirty = true;
+        long seen;
+    }
+
+    private final DialogEventManager events;
+    private final Map<UUID, Presence> players = new HashMap<>();
+    private final List<DialogRegion> found = new ArrayList<>();
+    private volatile RegionIndex latest = RegionIndex.EMPTY;
+    private RegionIndex index = RegionIndex.EMPTY;
+    private long lastSweep;
+
+    RegionTracker(DialogEventManager events) {
+        this.events = events;
+    }
+
+    /**
+     * Publishes the regions of a reload; the next tick swaps them in. Players keep the regions
+     * whose keys still exist, so a reload does not repeat enter events, and regions that are gone
+     * are dropped without leave events.
+     */
+    void update(RegionIndex updated) {
+        latest = updated;
+    }
+
+    void clear() {
+        players.clear();
+        latest = RegionIndex.EMPTY;
+        index = RegionIndex.EMPTY;
+        lastSweep = 0;
+    }
+
+    void tick(MinecraftServer server) {
+        RegionIndex updated = latest;
+        if (updated != index) {
+            index = updated;
+            for (Presence presence : players.values()) {
+                presence.dirty = true;
+            }
+        }
+        if (index.isEmpty()) {
+            if (!players.isEmpty()) {
+                players.clear();
+            }
+            return;
+        }
+        long now = server.getTickCount();
+        for (ServerPlayer player : List.copyOf(server.getPlayerList().getPlayers())) {
+            if (player.isRemoved()) {
+                continue;
+            }
+            Presence presence = players.computeIfAbsent(player.getUUID(), id -> new Presence());
+            presence.seen = now;
+            ResourceKey<Level> dimension = player.serverLevel().dimension();
+            int x = Mth.floor(player.getX());
+            int y = Mth.floor(player.getY());
+            int z = Mth.floor(player.getZ());
+            if (presence.dirty || dimension != presence.dimension || x != presence.x || y != presence.y || z != presence.z) {
+                presence.dirty = false;
+                presence.dimension = dimension;
+                presence.x = x;
+                presence.y = y;
+                presence.z = z;
+                move(player, presence, now);
+            }
+            if (index.hasStay() && !presence.inside.isEmpty()) {
+                stay(player, presence, now);
+            }
+        }
+        if (now - lastSweep >= SWEEP_INTERVAL) {
+            lastSweep = now;
+            players.values().removeIf(presence -> presence.seen != now);
+        }
+    }
+
+    private void move(ServerPlayer player, Presence presence, long now) {
+        found.clear();
+        index.collect(presence.dimension, presence.x, presence.y, presence.z, found);
+        Iterator<Map.Entry<String, Inside>> iterator = presence.inside.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Inside> entry = iterator.next();
+            DialogRegion current = index.get(entry.getKey());
+            if (current == null) {
+                iterator.remove();
+            } else if (!found.contains(current)) {
+                iterator.remove();
+                events.handleRegion(DialogEventType.ON_REGION_LEAVE, player, entry.getValue().region, presence.x, presence.y, presence.z, now - entry.getValue().entered);
+            } else {
+                entry.getValue().region = current;
+            }
+        }
+        for (DialogRegion region : found) {
+            if (!presence.inside.containsKey(region.key())) {
+                presence.inside.put(region.key(), new Inside(region, now));
+                events.handleRegion(DialogEventType.ON_REGION_ENTER, player, region, presence.x, presence.y, presence.z, 0);
+            }
+        }
+    }
+
+    private void stay(ServerPlayer player, Presence presence, long now) {
+        for (Inside inside : presence.inside.values()) {
+            long ticks = now - inside.entered;
+            if (ticks > 0 && ticks % inside.region.stayInterval() == 0) {
+                events.handleRegion(DialogEventType.ON_REGION_STAY, player, inside.region, presence.x, presence.y, presence.z, ticks);
+            }
+        }
+    }
+}
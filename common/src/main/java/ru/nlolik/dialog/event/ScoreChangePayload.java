@@ -0,0 +1,54 @@
+package ru.nlolik.dialog.event;
+
+final class ScoreChangePayload extends EventPayload {
+    private static final String[] KEYS = {"objective", "score", "old", "delta"};
+
+    private final String objective;
+    private final int old;
+    private final int score;
+
+    ScoreChangePayload(String objective, int old, int score) {
+        super("on_score_change");
+        this.objective = objective;
+        this.old = old;
+        this.score = score;
+    }
+
+    @Override
+    protected Object value(String key) {
+        return switch (key) {
+            case "objective" -> objective;
+            case "score" -> score;
+            case "old" -> old;
+            case "delta" -> score - old;
+            default -> null;
+        };
+    }
+
+    @Override
+    protected double number(String key) {
+        return switch (key) {
+            case "score" -> score;
+            case "old" -> old;
+            case "delta" -> score - old;
+            default -> Double.NaN;
+        };
+    }
+
+    String objective() {
+        return objective;
+    }
+
+    int old() {
+        return old;
+    }
+
+    int score() {
+        return score;
+    }
+
+    @Override
+    protected String[] keys() {
+        return KEYS;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.nlolik.dialog.event;
+
+/**
+ * Comparison against a fixed score, such as {@code >= 10}, used by {@code on_score_change}
+ * triggers to fire only when a write crosses it.
+ */
+public final class ScoreThreshold {
+    private static final String[] OPERATORS = {"<=", ">=", "==", "!=", "<", ">", "="};
+
+    private final String operator;
+    private final int value;
+
+    private ScoreThreshold(String operator, int value) {
+        this.operator = operator;
+        this.value = value;
+    }
+
+    /**
+     * Parses {@code <operator> <number>}; a bare number means {@code >=}. Returns {@code null} if
+     * the text is not a threshold.
+     */
+    public static ScoreThreshold parse(String text) {
+        String trimmed = text.trim();
+        String operator = ">=";
+        for (String candidate : OPERATORS) {
+            if (trimmed.startsWith(candidate)) {
+                operator = candidate.equals("=") ? "==" : candidate;
+                trimmed = trimmed.substring(candidate.length()).trim();
+                break;
+            }
+        }
+        try {
+            return new ScoreThreshold(operator, Integer.parseInt(trimmed));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public boolean test(int score) {
+        return switch (operator) {
+            case "<=" -> score <= value;
+            case ">=" -> score >= value;
+            case "<" -> score < value;
+            case ">" -> score > value;
+            case "!=" -> score != value;
+            default -> score == value;
+        };
+    }
+
+    /**
+     * Whether a change from {@code old} to {@code score} moves from outside the threshold to
+     * inside it.
+     */
+    public boolean crossed(int old, int score) {
+        return !test(old) && test(score);
+    }
+
+    @Override
+    public String toString() {
+        return operator + " " + value;
+    }
+}
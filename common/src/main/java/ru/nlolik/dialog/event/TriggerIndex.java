@@ -0,0 +1,209 @@
+package ru.nlolik.dialog.event;
+
+import net.minecraft.core.Holder;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Event triggers grouped by event type, by name for custom events, and by the value of their
+ * most selective filter. Built once per reload; an event nobody listens to costs a single map
+ * lookup.
+ *
+ * <p>Filter values are looked up the way {@link FilterMatcher} compares them: registry entries by
+ * their id, with ids defaulting to {@code minecraft:}, and text ignoring case. Score triggers with
+ * an {@code objective} are filed under it as written, since objective names are case-sensitive.
+ * Matching an event allocates only the returned list, and only when some trigger matched.
+ */
+final class TriggerIndex {
+    static final TriggerIndex EMPTY = new TriggerIndex(List.of());
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::order);
+    private static final ThreadLocal<List<Entry>> CANDIDATES = ThreadLocal.withInitial(ArrayList::new);
+
+    private record Entry(int order, DialogEventTrigger trigger) {
+    }
+
+    private static final class Bucket {
+        final List<Entry> unfiltered = new ArrayList<>();
+        final Map<String, List<Entry>> byObjective = new HashMap<>();
+        String[] filterKeys;
+        Values[] filterValues;
+    }
+
+    /**
+     * Triggers filed under one filter key, by value.
+     */
+    private static final class Values {
+        final Map<ResourceLocation, List<Entry>> byId = new HashMap<>();
+        final Map<String, List<Entry>> byText = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        void add(String value, Entry entry) {
+            byText.computeIfAbsent(value, v -> new ArrayList<>()).add(entry);
+            ResourceLocation id = ResourceLocation.tryParse(value);
+            if (id != null) {
+                byId.computeIfAbsent(id, v -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        List<Entry> get(Object value) {
+            if (value instanceof Holder.Reference<?> reference) {
+                return byId.get(reference.key().location());
+            }
+            if (value instanceof Holder<?>) {
+                return null;
+            }
+            return byText.get(value instanceof String string ? string : value.toString());
+        }
+    }
+
+    private final Map<DialogEventType, Bucket> byType = new EnumMap<>(DialogEventType.class);
+    private final Map<String, Bucket> byCustomName = new HashMap<>();
+
+    TriggerIndex(List<DialogEventTrigger> triggers) {
+        Map<Object, List<Entry>> grouped = new HashMap<>();
+        for (int i = 0; i < triggers.size(); i++) {
+            DialogEventTrigger trigger = triggers.get(i);
+            Object key = bucketKey(trigger);
+            if (key != null) {
+                grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(new Entry(i, trigger));
+            }
+        }
+        for (Map.Entry<Object, List<Entry>> group : grouped.entrySet()) {
+            Bucket bucket = build(group.getValue());
+            if (group.getKey() instanceof DialogEventType type) {
+                byType.put(type, bucket);
+            } else {
+                byCustomName.put((String) group.getKey(), bucket);
+            }
+        }
+    }
+
+    /**
+     * Bit {@code 1 << type.ordinal()} is set for every event type that has at least one trigger.
+     */
+    long typeMask() {
+        long mask = 0L;
+        for (DialogEventType type : byType.keySet()) {
+            mask |= 1L << type.ordinal();
+        }
+        if (!byCustomName.isEmpty()) {
+            mask |= 1L << DialogEventType.CUSTOM.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the triggers for an event whose filters match {@code data}, in definition order.
+     */
+    List<DialogEventTrigger> match(DialogEventType type, String customName, Map<String, Object> data) {
+        Bucket bucket = type == DialogEventType.CUSTOM
+                ? customName == null ? null : byCustomName.get(customName.toLowerCase(Locale.ROOT))
+                : byType.get(type);
+        if (bucket == null) {
+            return List.of();
+        }
+        List<Entry> candidates = CANDIDATES.get();
+        try {
+            collect(bucket.unfiltered, data, candidates);
+            if (!bucket.byObjective.isEmpty() && DialogEventTrigger.objective(data) instanceof String objective) {
+                List<Entry> entries = bucket.byObjective.get(objective);
+                if (entries != null) {
+                    collect(entries, data, candidates);
+                }
+            }
+            EventPayload payload = data instanceof EventPayload typed ? typed : null;
+            for (int i = 0; i < bucket.filterKeys.length; i++) {
+                String key = bucket.filterKeys[i];
+                Object value = payload != null ? payload.filterValue(key) : data.get(key);
+                if (value != null) {
+                    List<Entry> entries = bucket.filterValues[i].get(value);
+                    if (entries != null) {
+                        collect(entries, data, candidates);
+                    }
+                }
+            }
+            if (candidates.isEmpty()) {
+                return List.of();
+            }
+            if (candidates.size() > 1) {
+                candidates.sort(ORDER);
+            }
+            DialogEventTrigger[] matched = new DialogEventTrigger[candidates.size()];
+            for (int i = 0; i < matched.length; i++) {
+                matched[i] = candidates.get(i).trigger();
+            }
+            return List.of(matched);
+        } finally {
+            candidates.clear();
+        }
+    }
+
+    private static void collect(List<Entry> entries, Map<String, Object> data, List<Entry> out) {
+        for (Entry entry : entries) {
+            if (entry.trigger().matchesFilters(data)) {
+                out.add(entry);
+            }
+        }
+    }
+
+    private static Object bucketKey(DialogEventTrigger trigger) {
+        if (trigger.type() != DialogEventType.CUSTOM) {
+            return trigger.type();
+        }
+        return trigger.name() == null ? null : trigger.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Files each trigger under its objective if it has one, and otherwise under the filter value
+     * that the fewest triggers of the group share, so that common values such as
+     * {@code hand: MAIN_HAND} do not hide a block or item id.
+     */
+    private static Bucket build(List<Entry> entries) {
+        Map<String, Integer> shared = new HashMap<>();
+        for (Entry entry : entries) {
+            String[] keys = entry.trigger().filterKeys();
+            String[] values = entry.trigger().filterValues();
+            for (int i = 0; i < keys.length; i++) {
+                shared.merge(keys[i] + '\0' + values[i], 1, Integer::sum);
+            }
+        }
+        Bucket bucket = new Bucket();
+        Map<String, Values> byFilter = new HashMap<>();
+        for (Entry entry : entries) {
+            if (entry.trigger().objective() != null) {
+                bucket.byObjective.computeIfAbsent(entry.trigger().objective(), k -> new ArrayList<>()).add(entry);
+                continue;
+            }
+            String[] keys = entry.trigger().filterKeys();
+            String[] values = entry.trigger().filterValues();
+            int best = -1;
+            int bestShared = Integer.MAX_VALUE;
+            for (int i = 0; i < keys.length; i++) {
+                int count = shared.get(keys[i] + '\0' + values[i]);
+                if (count < bestShared || count == bestShared && keys[i].compareTo(keys[best]) < 0) {
+                    best = i;
+                    bestShared = count;
+                }
+            }
+            if (best < 0) {
+                bucket.unfiltered.add(entry);
+            } else {
+                byFilter.computeIfAbsent(keys[best], k -> new Values()).add(values[best], entry);
+            }
+        }
+        bucket.filterKeys = byFilter.keySet().toArray(String[]::new);
+        bucket.filterValues = new Values[bucket.filterKeys.length];
+        for (int i = 0; i < bucket.filterKeys.length; i++) {
+            bucket.filterValues[i] = byFilter.get(bucket.filterKeys[i]);
+        }
+        return bucket;
+    }
+}
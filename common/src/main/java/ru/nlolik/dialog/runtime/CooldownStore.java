@@ -0,0 +1,190 @@
+package ru.nlolik.dialog.runtime;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.minecraft.server.MinecraftServer;
+import ru.nlolik.ChatDialogs;
+import ru.nlolik.dialog.config.Cooldown;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Expiry times of cooldowns per player and key, measured in overworld game time so that they
+ * survive restarts when persisted. Each player holds a few parallel arrays; expired entries are
+ * dropped whenever that player's entries are touched, and the whole store is swept after every
+ * batch of writes as large as the store itself, so there is no per-tick cleanup. Only used from
+ * the server thread.
+ */
+public final class CooldownStore {
+    private static final class Entries {
+        String[] keys = new String[2];
+        long[] expiries = new long[2];
+        int size;
+
+        int indexOf(String key) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void put(String key, long expiry) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                expiries[index] = expiry;
+                return;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                expiries = Arrays.copyOf(expiries, size * 2);
+            }
+            keys[size] = key;
+            expiries[size] = expiry;
+            size++;
+        }
+
+        void expire(long now) {
+            int i = 0;
+            while (i < size) {
+                if (expiries[i] <= now) {
+                    size--;
+                    keys[i] = keys[size];
+                    expiries[i] = expiries[size];
+                    keys[size] = null;
+                } else {
+                    i++;
+                }
+            }
+        }
+    }
+
+    private final Map<UUID, Entries> players = new HashMap<>();
+    private MinecraftServer server;
+    private int writes;
+    private int entries;
+
+    public void attach(MinecraftServer server) {
+        this.server = server;
+    }
+
+    public void clear() {
+        players.clear();
+        server = null;
+        writes = 0;
+        entries = 0;
+    }
+
+    /**
+     * Records a use of {@code cooldown} by {@code playerId} if it is allowed and returns 0, or
+     * returns the number of ticks left otherwise.
+     */
+    public long acquire(UUID playerId, Cooldown cooldown) {
+        if (cooldown.isNone() || server == null) {
+            return 0;
+        }
+        long now = now();
+        Entries playerEntries = players.get(playerId);
+        if (playerEntries != null) {
+            int before = playerEntries.size;
+            playerEntries.expire(now);
+            entries -= before - playerEntries.size;
+            int index = playerEntries.indexOf(cooldown.key());
+            if (index >= 0) {
+                if (cooldown.debounceTicks() > 0) {
+                    playerEntries.expiries[index] = Math.max(playerEntries.expiries[index], now + cooldown.debounceTicks());
+                }
+                return playerEntries.expiries[index] - now;
+            }
+        } else {
+            playerEntries = new Entries();
+            players.put(playerId, playerEntries);
+        }
+        playerEntries.put(cooldown.key(), now + Math.max(cooldown.cooldownTicks(), cooldown.debounceTicks()));
+        entries++;
+        if (++writes > Math.max(64, entries)) {
+            sweep(now);
+        }
+        return 0;
+    }
+
+    public void load(Path file) {
+        if (server == null || !Files.exists(file)) {
+            return;
+        }
+        long now = now();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonElement root = JsonParser.parseReader(reader);
+            if (!root.isJsonObject()) {
+                return;
+            }
+            for (Map.Entry<String, JsonElement> player : root.getAsJsonObject().entrySet()) {
+                if (!player.getValue().isJsonObject()) {
+                    continue;
+                }
+                UUID playerId = UUID.fromString(player.getKey());
+                for (Map.Entry<String, JsonElement> entry : player.getValue().getAsJsonObject().entrySet()) {
+                    long expiry = entry.getValue().getAsLong();
+                    if (expiry > now) {
+                        players.computeIfAbsent(playerId, id -> new Entries()).put(entry.getKey(), expiry);
+                        entries++;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            ChatDialogs.LOGGER.error("Failed to read dialog cooldowns {}", file, e);
+        }
+    }
+
+    public void save(Path file) {
+        if (server == null) {
+            return;
+        }
+        sweep(now());
+        JsonObject root = new JsonObject();
+        for (Map.Entry<UUID, Entries> player : players.entrySet()) {
+            JsonObject object = new JsonObject();
+            Entries playerEntries = player.getValue();
+            for (int i = 0; i < playerEntries.size; i++) {
+                object.addProperty(playerEntries.keys[i], playerEntries.expiries[i]);
+            }
+            root.add(player.getKey().toString(), object);
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, root.toString(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            ChatDialogs.LOGGER.error("Failed to save dialog cooldowns {}", file, e);
+        }
+    }
+
+    private long now() {
+        return server.overworld().getGameTime();
+    }
+
+    private void sweep(long now) {
+        writes = 0;
+        entries = 0;
+        Iterator<Entries> iterator = players.values().iterator();
+        while (iterator.hasNext()) {
+            Entries playerEntries = iterator.next();
+            playerEntries.expire(now);
+            if (playerEntries.size == 0) {
+                iterator.remove();
+            } else {
+                entries += playerEntries.size;
+            }
+        }
+    }
+}
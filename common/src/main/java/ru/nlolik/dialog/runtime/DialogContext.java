@@ -3,8 +3,8 @@ package ru.nlolik.dialog.runtime;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 import ru.nlolik.dialog.config.DialogDefinition;
+import ru.nlolik.dialog.event.EventPayload;
 
-import java.util.Collections;
 import java.util.Map;
 
 public class DialogContext {
@@ -23,7 +23,7 @@ public class DialogContext {
         this.definition = definition;
         this.player = player;
         this.server = server;
-        this.eventData = eventData == null ? Map.of() : Map.copyOf(eventData);
+        this.eventData = eventData == null ? Map.of() : eventData instanceof EventPayload ? eventData : Map.copyOf(eventData);
     }
 
     public DialogRuntime runtime() {
@@ -43,6 +43,6 @@ public class DialogContext {
     }
 
     public Map<String, Object> eventData() {
-        return Collections.unmodifiableMap(eventData);
+        return eventData;
     }
 }
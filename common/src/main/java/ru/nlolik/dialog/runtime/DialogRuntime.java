@@ -8,12 +8,13 @@ import net.minecraft.network.chat.MutableComponent;
 import net.minecraft.server.level.ServerPlayer;
 import ru.nlolik.ChatDialogs;
 import ru.nlolik.dialog.DialogManager;
-import ru.nlolik.dialog.action.DialogAction;
+import ru.nlolik.dialog.action.ActionRunner;
 import ru.nlolik.dialog.config.ConditionalBranch;
 import ru.nlolik.dialog.config.DialogButton;
 import ru.nlolik.dialog.config.DialogDefinition;
 import ru.nlolik.dialog.config.DialogLine;
 import ru.nlolik.dialog.config.DialogNode;
+import ru.nlolik.dialog.config.LoopSettings;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -29,12 +30,16 @@ public class DialogRuntime {
     private final DialogDefinition definition;
     private final ServerPlayer player;
     private final DialogScheduler scheduler;
-    private final String initialNode;
+    private final DialogScheduler.TaskGroup dialogTasks;
+    private final DialogScheduler.TaskGroup nodeTasks;
+    private final String initialNodeId;
+    private final int initialNode;
     private final Map<String, DialogButton> buttonsById = new HashMap<>();
     private final Map<String, String> tokenToButton = new ConcurrentHashMap<>();
     private final Set<String> usedButtons = new HashSet<>();
     private boolean active = true;
-    private String currentNodeId;
+    private int currentNode = DialogNode.NONE;
+    private int nodeEpoch;
 
     public DialogRuntime(String sessionId, DialogDefinition definition, ServerPlayer player, DialogScheduler scheduler) {
         this(sessionId, definition, player, scheduler, definition.startNode());
@@ -45,15 +50,18 @@ public class DialogRuntime {
         this.definition = definition;
         this.player = player;
         this.scheduler = scheduler;
-        this.initialNode = initialNode == null ? definition.startNode() : initialNode;
+        this.dialogTasks = scheduler.newGroup();
+        this.nodeTasks = scheduler.newGroup();
+        this.initialNodeId = initialNode == null ? definition.startNode() : initialNode;
+        this.initialNode = definition.nodeIndex(initialNodeId);
     }
 
     public void start() {
         broadcast(dialogMessage("message.chatdialogs.dialog.started", definition.displayName()));
         if (definition.initialDelay() > 0) {
-            scheduler.schedule(definition.initialDelay(), () -> enterNode(initialNode));
+            dialogTasks.schedule(definition.initialDelay(), () -> enterNode(initialNode, initialNodeId));
         } else {
-            enterNode(initialNode);
+            enterNode(initialNode, initialNodeId);
         }
     }
 
@@ -62,6 +70,8 @@ public class DialogRuntime {
             return;
         }
         active = false;
+        nodeTasks.cancel();
+        dialogTasks.cancel();
         broadcast(dialogMessage("message.chatdialogs.dialog.stopped", definition.displayName()));
         DialogManager.removeRuntime(this);
     }
@@ -86,10 +96,15 @@ public class DialogRuntime {
             player.sendSystemMessage(dialogMessage("message.chatdialogs.dialog.button.conditions"));
             return;
         }
+        long cooldown = DialogManager.cooldowns().acquire(player.getUUID(), button.cooldown());
+        if (cooldown > 0) {
+            player.sendSystemMessage(dialogMessage("message.chatdialogs.dialog.button.cooldown", (cooldown + 19) / 20));
+            return;
+        }
         tokenToButton.remove(token);
         usedButtons.add(button.id());
         if (button.delayTicks() > 0) {
-            scheduler.schedule(button.delayTicks(), () -> executeButton(button));
+            dialogTasks.schedule(DialogScheduler.Priority.CRITICAL, button.delayTicks(), () -> executeButton(button));
         } else {
             executeButton(button);
         }
@@ -107,96 +122,111 @@ public class DialogRuntime {
         return definition;
     }
 
+    public DialogScheduler.TaskGroup tasks() {
+        return dialogTasks;
+    }
+
+    public DialogScheduler.TaskGroup nodeTasks() {
+        return nodeTasks;
+    }
+
     private void executeButton(DialogButton button) {
         if (!active) {
             return;
         }
-        DialogContext context = context(Map.of());
-        for (DialogAction action : button.actions()) {
-            try {
-                action.execute(context);
-            } catch (Exception e) {
-                ChatDialogs.LOGGER.error("Failed to execute button action", e);
-            }
+        ActionRunner.run(button.actions(), context(Map.of()), "Failed to execute button action", () -> finishButton(button));
+    }
+
+    private void finishButton(DialogButton button) {
+        if (!active) {
+            return;
         }
         if (button.closesDialog()) {
             closeWithNodeDelay();
             return;
         }
-        if (button.nextNode() != null && !button.nextNode().isBlank()) {
-            enterNode(button.nextNode());
+        if (button.nextIndex() != DialogNode.NONE) {
+            enterNode(button.nextIndex(), button.nextNode());
         }
     }
 
-    private void enterNode(String nodeId) {
+    /**
+     * Enters the node at {@code nodeIndex}; {@code nodeId} is the target as written, for the log
+     * when the node is missing.
+     */
+    private void enterNode(int nodeIndex, String nodeId) {
         if (!active) {
             return;
         }
-        DialogNode node;
-        try {
-            node = definition.node(nodeId);
-        } catch (IllegalArgumentException e) {
+        DialogNode node = definition.node(nodeIndex);
+        if (node == null) {
             ChatDialogs.LOGGER.warn("Missing dialog node {} in dialog {}", nodeId, definition.id());
             stop();
             return;
         }
-        currentNodeId = node.id();
+        if (!node.ready()) {
+            stop();
+            return;
+        }
+        currentNode = node.index();
+        int epoch = ++nodeEpoch;
+        nodeTasks.cancel();
         usedButtons.clear();
         buttonsById.clear();
         tokenToButton.clear();
         DialogContext context = context(Map.of());
-        for (DialogAction action : node.entryActions()) {
-            try {
-                action.execute(context);
-            } catch (Exception e) {
-                ChatDialogs.LOGGER.error("Failed to execute node action", e);
+        ActionRunner.run(node.entryActions(), context, "Failed to execute node action", () -> {
+            if (active && epoch == nodeEpoch) {
+                processBranches(node, context, epoch);
             }
-        }
-        if (processBranches(node, context)) {
-            return;
-        }
+        });
+    }
+
+    private void renderNode(DialogNode node) {
         int delay = node.startDelay();
         for (DialogLine line : node.lines()) {
             int scheduledDelay = delay;
-            scheduler.schedule(scheduledDelay, () -> sendLine(line));
+            nodeTasks.schedule(scheduledDelay, () -> sendLine(line));
             delay += Math.max(1, line.delayTicks());
             if (line.loop() != null) {
                 scheduleLoop(line, scheduledDelay + line.loop().intervalTicks(), line.loop());
             }
         }
         if (!node.buttons().isEmpty()) {
-            DialogNode finalNode = node;
-            scheduler.schedule(delay, () -> sendButtons(finalNode));
+            nodeTasks.schedule(delay, () -> sendButtons(node));
         }
-        if (node.autoNext() != null) {
-            scheduler.schedule(delay + node.autoNextDelay(), () -> enterNode(node.autoNext()));
+        if (node.autoNextIndex() != DialogNode.NONE) {
+            int autoNextDelay = delay + node.autoNextDelay();
+            if (node.inZeroDelayCycle()) {
+                autoNextDelay = Math.max(1, autoNextDelay);
+            }
+            nodeTasks.schedule(autoNextDelay, () -> enterNode(node.autoNextIndex(), node.autoNext()));
         }
         if (node.stopDelayTicks() > 0) {
-            scheduler.schedule(delay + node.stopDelayTicks(), this::stop);
+            nodeTasks.schedule(DialogScheduler.Priority.CRITICAL, delay + node.stopDelayTicks(), this::stop);
         } else if (node.closeOnFinish()) {
-            scheduler.schedule(delay, this::stop);
+            nodeTasks.schedule(DialogScheduler.Priority.CRITICAL, delay, this::stop);
         }
     }
 
-    private boolean processBranches(DialogNode node, DialogContext context) {
+    private void processBranches(DialogNode node, DialogContext context, int epoch) {
         for (ConditionalBranch branch : node.branches()) {
             boolean result = branch.type() == ConditionalBranch.Type.ELSE || branch.condition().test(context);
             if (result) {
-                for (DialogAction action : branch.actions()) {
-                    try {
-                        action.execute(context);
-                    } catch (Exception e) {
-                        ChatDialogs.LOGGER.error("Failed to execute branch action", e);
+                ActionRunner.run(branch.actions(), context, "Failed to execute branch action", () -> {
+                    if (!active || epoch != nodeEpoch) {
+                        return;
                     }
-                }
-                if (branch.nextNode() != null) {
-                    scheduler.schedule(1, () -> enterNode(branch.nextNode()));
-                    return true;
-                }
-                return false;
+                    if (branch.nextIndex() != DialogNode.NONE) {
+                        nodeTasks.schedule(1, () -> enterNode(branch.nextIndex(), branch.nextNode()));
+                    } else {
+                        renderNode(node);
+                    }
+                });
+                return;
             }
         }
-        return false;
+        renderNode(node);
     }
 
     private void sendLine(DialogLine line) {
@@ -204,24 +234,21 @@ public class DialogRuntime {
             return;
         }
         DialogContext context = context(Map.of());
-        String text = PlaceholderEngine.resolve(line.text(), context);
+        String text = line.textTemplate().resolve(context);
         Component component = TextRenderer.render(text, line.style());
         player.sendSystemMessage(component);
     }
 
-    private void scheduleLoop(DialogLine line, int initialDelay, ru.nlolik.dialog.config.LoopSettings loop) {
+    private void scheduleLoop(DialogLine line, int initialDelay, LoopSettings loop) {
         if (loop.times() == 0) {
             return;
         }
-        int iterations = loop.infinite() ? Integer.MAX_VALUE : Math.max(0, loop.times() - 1);
-        for (int i = 0; i < iterations; i++) {
-            int delay = initialDelay + (loop.intervalTicks() * i);
-            scheduler.schedule(delay, () -> sendLine(line));
-        }
+        int iterations = loop.infinite() ? -1 : Math.max(0, loop.times() - 1);
+        nodeTasks.scheduleLoop(initialDelay, loop.intervalTicks(), iterations, () -> sendLine(line));
     }
 
     private void sendButtons(DialogNode node) {
-        if (!active || !node.id().equals(currentNodeId)) {
+        if (!active || node.index() != currentNode) {
             return;
         }
         DialogContext context = context(Map.of());
@@ -234,7 +261,7 @@ public class DialogRuntime {
             buttonsById.put(button.id(), button);
             String token = UUID.randomUUID().toString();
             tokenToButton.put(token, button.id());
-            String resolvedText = PlaceholderEngine.resolve(button.text(), context);
+            String resolvedText = button.textTemplate().resolve(context);
             MutableComponent label = TextRenderer.render(resolvedText, button.style()).copy();
             MutableComponent clickable = Component.empty()
                     .append(Component.literal("[ ").withStyle(ChatFormatting.DARK_GRAY))
@@ -290,15 +317,13 @@ public class DialogRuntime {
     }
 
     private void closeWithNodeDelay() {
-        DialogNode node;
-        try {
-            node = definition.node(currentNodeId);
-        } catch (IllegalArgumentException ignored) {
+        DialogNode node = definition.node(currentNode);
+        if (node == null) {
             stop();
             return;
         }
         if (node.stopDelayTicks() > 0) {
-            scheduler.schedule(node.stopDelayTicks(), this::stop);
+            dialogTasks.schedule(DialogScheduler.Priority.CRITICAL, node.stopDelayTicks(), this::stop);
         } else {
             stop();
         }
@@ -1,108 +1,744 @@
 package ru.nlolik.dialog.runtime;
 
 import net.minecraft.server.MinecraftServer;
+import ru.nlolik.ChatDialogs;
 
-import java.util.Comparator;
-import java.util.PriorityQueue;
+import java.util.ArrayDeque;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Supplier;
 
+/**
+ * Tick-granular hierarchical timing wheel. The first level has one slot per tick, every further
+ * level covers the whole range of the level below it per slot, and delays that do not fit into
+ * the wheel at all are parked in an overflow bucket. Scheduling and expiring a task are O(1);
+ * tasks only move when the slot they sit in cascades down to a finer level.
+ *
+ * <p>Every task can be cancelled through its {@link Handle}, and tasks scheduled through a
+ * {@link TaskGroup} can be cancelled together when their owner goes away.
+ *
+ * <p>{@link #tick()} can run under a nanosecond budget. Due tasks that do not fit are carried
+ * over to the next tick in FIFO order, and {@link Priority#CRITICAL} tasks always run before
+ * normal and cosmetic ones.
+ *
+ * <p>The wheel itself is only touched from the server thread. Calls from other threads are
+ * pushed into a lock-free inbox and applied at the start of the next {@link #tick()}.
+ */
 public class DialogScheduler {
-    private static final class ScheduledTask {
-        final long runAt;
-        final Runnable runnable;
+    private static final int ROOT_BITS = 8;
+    private static final int ROOT_SIZE = 1 << ROOT_BITS;
+    private static final int ROOT_MASK = ROOT_SIZE - 1;
+    private static final int LEVEL_BITS = 6;
+    private static final int LEVEL_SIZE = 1 << LEVEL_BITS;
+    private static final int LEVEL_MASK = LEVEL_SIZE - 1;
+    private static final int LEVELS = 3;
+    private static final long WHEEL_SPAN = 1L << (ROOT_BITS + LEVEL_BITS * LEVELS);
 
-        ScheduledTask(long runAt, Runnable runnable) {
+    public enum Priority {
+        CRITICAL,
+        NORMAL,
+        COSMETIC
+    }
+
+    public record Stats(int pending, int carriedOver, long deferredTasks, long deferredTicks, long maxDeferredTicks) {
+    }
+
+    public interface Handle {
+        void cancel();
+
+        /**
+         * Moves a pending task forward so that it runs on the current tick instead of waiting for
+         * its scheduled time. Does nothing for tasks that already finished or are already due.
+         */
+        void wake();
+
+        boolean isDone();
+    }
+
+    /**
+     * Owner scope for scheduled tasks. Cancelling a group unlinks every task it still owns in
+     * O(k) of those tasks; the group itself stays usable for new tasks afterwards.
+     */
+    public final class TaskGroup {
+        private ScheduledTask head;
+        private int size;
+
+        private TaskGroup() {
+        }
+
+        public Handle schedule(int delayTicks, Runnable runnable) {
+            return DialogScheduler.this.schedule(this, Priority.NORMAL, delayTicks, runnable);
+        }
+
+        public Handle schedule(Priority priority, int delayTicks, Runnable runnable) {
+            return DialogScheduler.this.schedule(this, priority, delayTicks, runnable);
+        }
+
+        public Handle scheduleRepeating(int intervalTicks, int timeoutTicks, Supplier<Boolean> condition, Runnable onComplete, Runnable onTimeout) {
+            return DialogScheduler.this.scheduleRepeating(this, intervalTicks, timeoutTicks, condition, onComplete, onTimeout);
+        }
+
+        public Handle scheduleLoop(int delayTicks, int intervalTicks, int iterations, Runnable runnable) {
+            return DialogScheduler.this.scheduleLoop(this, delayTicks, intervalTicks, iterations, runnable);
+        }
+
+        public void cancel() {
+            if (!onServerThread()) {
+                execute(this::cancel);
+                return;
+            }
+            ScheduledTask task = head;
+            while (task != null) {
+                ScheduledTask next = task.groupNext;
+                task.groupPrev = null;
+                task.groupNext = null;
+                task.group = null;
+                task.cancel();
+                task = next;
+            }
+            head = null;
+            size = 0;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        private void add(ScheduledTask task) {
+            task.group = this;
+            task.groupPrev = null;
+            task.groupNext = head;
+            if (head != null) {
+                head.groupPrev = task;
+            }
+            head = task;
+            size++;
+        }
+
+        private void remove(ScheduledTask task) {
+            if (task.groupPrev == null) {
+                head = task.groupNext;
+            } else {
+                task.groupPrev.groupNext = task.groupNext;
+            }
+            if (task.groupNext != null) {
+                task.groupNext.groupPrev = task.groupPrev;
+            }
+            task.groupPrev = null;
+            task.groupNext = null;
+            task.group = null;
+            size--;
+        }
+    }
+
+    private abstract class ScheduledTask implements Handle {
+        long runAt;
+        ScheduledTask prev;
+        ScheduledTask next;
+        Bucket bucket;
+        TaskGroup group;
+        ScheduledTask groupPrev;
+        ScheduledTask groupNext;
+        Priority priority = Priority.NORMAL;
+        boolean done;
+
+        /**
+         * Runs the task for the given tick and returns {@code true} if it re-armed itself by
+         * updating {@link #runAt}.
+         */
+        abstract boolean fire(long currentTick);
+
+        abstract void release();
+
+        @Override
+        public void cancel() {
+            if (!onServerThread()) {
+                execute(this::cancel);
+                return;
+            }
+            if (done) {
+                return;
+            }
+            done = true;
+            if (group != null) {
+                group.remove(this);
+            }
+            if (bucket != null) {
+                bucket.unlink(this);
+                pending--;
+            }
+            release();
+        }
+
+        @Override
+        public void wake() {
+            if (!onServerThread()) {
+                execute(this::wake);
+                return;
+            }
+            if (done || bucket == null || server == null) {
+                return;
+            }
+            bucket.unlink(this);
+            pending--;
+            runAt = server.getTickCount();
+            insert(this);
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+    }
+
+    private final class OneShotTask extends ScheduledTask {
+        Runnable runnable;
+
+        OneShotTask(long runAt, Priority priority, Runnable runnable) {
+            this.runAt = runAt;
+            this.priority = priority;
+            this.runnable = runnable;
+        }
+
+        @Override
+        boolean fire(long currentTick) {
+            runnable.run();
+            return false;
+        }
+
+        @Override
+        void release() {
+            runnable = null;
+        }
+    }
+
+    private final class LoopTask extends ScheduledTask {
+        final int interval;
+        int remaining;
+        Runnable runnable;
+
+        LoopTask(long runAt, int interval, int remaining, Runnable runnable) {
             this.runAt = runAt;
+            this.priority = Priority.COSMETIC;
+            this.interval = interval;
+            this.remaining = remaining;
             this.runnable = runnable;
         }
+
+        @Override
+        boolean fire(long currentTick) {
+            runnable.run();
+            if (remaining > 0 && --remaining == 0) {
+                return false;
+            }
+            runAt = currentTick + interval;
+            return true;
+        }
+
+        @Override
+        void release() {
+            runnable = null;
+        }
     }
 
-    private static final class RepeatingTask {
-        long nextRun;
+    private final class RepeatingTask extends ScheduledTask {
         final int interval;
         final long endTick;
-        final Supplier<Boolean> condition;
-        final Runnable onComplete;
-        final Runnable onTimeout;
+        Supplier<Boolean> condition;
+        Runnable onComplete;
+        Runnable onTimeout;
 
-        RepeatingTask(long nextRun, int interval, long endTick, Supplier<Boolean> condition, Runnable onComplete, Runnable onTimeout) {
-            this.nextRun = nextRun;
+        RepeatingTask(long runAt, int interval, long endTick, Supplier<Boolean> condition, Runnable onComplete, Runnable onTimeout) {
+            this.runAt = runAt;
             this.interval = interval;
             this.endTick = endTick;
             this.condition = condition;
             this.onComplete = onComplete;
             this.onTimeout = onTimeout;
         }
+
+        @Override
+        boolean fire(long currentTick) {
+            boolean conditionMet = false;
+            try {
+                conditionMet = condition.get();
+            } catch (Exception e) {
+                ChatDialogs.LOGGER.error("Failed to evaluate repeating dialog task condition", e);
+            }
+            if (conditionMet) {
+                if (onComplete != null) {
+                    onComplete.run();
+                }
+                return false;
+            }
+            if (currentTick >= endTick) {
+                if (onTimeout != null) {
+                    onTimeout.run();
+                }
+                return false;
+            }
+            runAt = Math.min(currentTick + interval, endTick);
+            return true;
+        }
+
+        @Override
+        void release() {
+            condition = null;
+            onComplete = null;
+            onTimeout = null;
+        }
+    }
+
+    private final class Bucket {
+        ScheduledTask head;
+        ScheduledTask tail;
+
+        void append(ScheduledTask task) {
+            task.bucket = this;
+            task.next = null;
+            task.prev = tail;
+            if (tail == null) {
+                head = task;
+            } else {
+                tail.next = task;
+            }
+            tail = task;
+        }
+
+        void unlink(ScheduledTask task) {
+            if (task.prev == null) {
+                head = task.next;
+            } else {
+                task.prev.next = task.next;
+            }
+            if (task.next == null) {
+                tail = task.prev;
+            } else {
+                task.next.prev = task.prev;
+            }
+            task.prev = null;
+            task.next = null;
+            task.bucket = null;
+        }
+
+        ScheduledTask drain() {
+            ScheduledTask first = head;
+            head = null;
+            tail = null;
+            return first;
+        }
+
+        void cancelAll() {
+            ScheduledTask task = drain();
+            while (task != null) {
+                ScheduledTask next = task.next;
+                task.prev = null;
+                task.next = null;
+                task.bucket = null;
+                task.cancel();
+                task = next;
+            }
+        }
     }
 
-    private MinecraftServer server;
-    private final Queue<ScheduledTask> tasks = new PriorityQueue<>(Comparator.comparingLong(t -> t.runAt));
-    private final Queue<RepeatingTask> repeating = new PriorityQueue<>(Comparator.comparingLong(t -> t.nextRun));
+    private final class InboxHandle implements Handle {
+        private volatile Handle delegate;
+        private volatile boolean cancelled;
+        private volatile boolean woken;
+
+        void bind(Handle handle) {
+            delegate = handle;
+            if (cancelled) {
+                handle.cancel();
+            } else if (woken) {
+                handle.wake();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Handle handle = delegate;
+            if (handle != null) {
+                handle.cancel();
+            }
+        }
+
+        @Override
+        public void wake() {
+            woken = true;
+            Handle handle = delegate;
+            if (handle != null) {
+                handle.wake();
+            }
+        }
+
+        @Override
+        public boolean isDone() {
+            Handle handle = delegate;
+            return cancelled || (handle != null && handle.isDone());
+        }
+    }
+
+    private static final Handle CANCELLED = new Handle() {
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public void wake() {
+        }
+
+        @Override
+        public boolean isDone() {
+            return true;
+        }
+    };
+
+    private volatile MinecraftServer server;
+    private final Queue<Runnable> inbox = new ConcurrentLinkedQueue<>();
+    private final Bucket[] root = newBuckets(ROOT_SIZE);
+    private final Bucket[][] levels = new Bucket[LEVELS][];
+    private final Bucket overflow = new Bucket();
+    private final ArrayDeque<ScheduledTask>[] due = newQueues();
+    private long wheelTick;
+    private int pending;
+    private long tickBudgetNanos;
+    private int carriedOver;
+    private long deferredTasks;
+    private long deferredTicks;
+    private long maxDeferredTicks;
+
+    public DialogScheduler() {
+        for (int i = 0; i < LEVELS; i++) {
+            levels[i] = newBuckets(LEVEL_SIZE);
+        }
+    }
+
+    public void setTickBudgetNanos(long tickBudgetNanos) {
+        this.tickBudgetNanos = Math.max(0L, tickBudgetNanos);
+    }
 
     public void attach(MinecraftServer server) {
         this.server = server;
-        tasks.clear();
-        repeating.clear();
+        clear();
+        wheelTick = server.getTickCount();
     }
 
     public void detach() {
-        tasks.clear();
-        repeating.clear();
+        clear();
         server = null;
+        Runnable task;
+        while ((task = inbox.poll()) != null) {
+            if (task instanceof Discardable discardable) {
+                discard(discardable);
+            }
+        }
+    }
+
+    /**
+     * Queues {@code task} to run on the server thread at the start of the next tick. Safe to
+     * call from any thread and never blocks.
+     */
+    public void execute(Runnable task) {
+        inbox.add(task);
     }
 
-    public void schedule(int delayTicks, Runnable runnable) {
+    /**
+     * Like {@link #execute(Runnable)}, but runs {@code onDiscard} instead when no server is attached
+     * or the server stops before the task ran, so that callers waiting for its result are released.
+     */
+    public void execute(Runnable task, Runnable onDiscard) {
+        Discardable discardable = new Discardable(task, onDiscard);
         if (server == null) {
+            discard(discardable);
             return;
         }
-        tasks.add(new ScheduledTask(server.getTickCount() + Math.max(0, delayTicks), runnable));
+        inbox.add(discardable);
+        if (server == null && inbox.remove(discardable)) {
+            discard(discardable);
+        }
+    }
+
+    private static void discard(Discardable discardable) {
+        try {
+            discardable.onDiscard().run();
+        } catch (Exception e) {
+            ChatDialogs.LOGGER.error("Failed to discard submitted dialog task", e);
+        }
     }
 
-    public void scheduleRepeating(int intervalTicks, int timeoutTicks, Supplier<Boolean> condition, Runnable onComplete, Runnable onTimeout) {
+    private record Discardable(Runnable task, Runnable onDiscard) implements Runnable {
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    public boolean onServerThread() {
+        MinecraftServer current = server;
+        return current == null || current.isSameThread();
+    }
+
+    public TaskGroup newGroup() {
+        return new TaskGroup();
+    }
+
+    public Handle schedule(int delayTicks, Runnable runnable) {
+        return schedule(null, Priority.NORMAL, delayTicks, runnable);
+    }
+
+    public Handle schedule(Priority priority, int delayTicks, Runnable runnable) {
+        return schedule(null, priority, delayTicks, runnable);
+    }
+
+    public Handle scheduleRepeating(int intervalTicks, int timeoutTicks, Supplier<Boolean> condition, Runnable onComplete, Runnable onTimeout) {
+        return scheduleRepeating(null, intervalTicks, timeoutTicks, condition, onComplete, onTimeout);
+    }
+
+    private Handle schedule(TaskGroup group, Priority priority, int delayTicks, Runnable runnable) {
         if (server == null) {
-            return;
+            return CANCELLED;
+        }
+        if (!onServerThread()) {
+            InboxHandle handle = new InboxHandle();
+            execute(() -> handle.bind(schedule(group, priority, delayTicks, runnable)));
+            return handle;
+        }
+        return submit(group, new OneShotTask(server.getTickCount() + Math.max(0, delayTicks), priority, runnable));
+    }
+
+    private Handle scheduleRepeating(TaskGroup group, int intervalTicks, int timeoutTicks, Supplier<Boolean> condition, Runnable onComplete, Runnable onTimeout) {
+        if (server == null) {
+            return CANCELLED;
+        }
+        if (!onServerThread()) {
+            InboxHandle handle = new InboxHandle();
+            execute(() -> handle.bind(scheduleRepeating(group, intervalTicks, timeoutTicks, condition, onComplete, onTimeout)));
+            return handle;
         }
         long now = server.getTickCount();
         long end = timeoutTicks <= 0 ? Long.MAX_VALUE : now + timeoutTicks;
-        repeating.add(new RepeatingTask(now + Math.max(1, intervalTicks), Math.max(1, intervalTicks), end, condition, onComplete, onTimeout));
+        int interval = Math.max(1, intervalTicks);
+        return submit(group, new RepeatingTask(Math.min(now + interval, end), interval, end, condition, onComplete, onTimeout));
+    }
+
+    /**
+     * Runs {@code runnable} after {@code delayTicks} and then every {@code intervalTicks} using a
+     * single wheel entry. A negative {@code iterations} count repeats until the task is cancelled.
+     */
+    public Handle scheduleLoop(int delayTicks, int intervalTicks, int iterations, Runnable runnable) {
+        return scheduleLoop(null, delayTicks, intervalTicks, iterations, runnable);
+    }
+
+    private Handle scheduleLoop(TaskGroup group, int delayTicks, int intervalTicks, int iterations, Runnable runnable) {
+        if (server == null || iterations == 0) {
+            return CANCELLED;
+        }
+        if (!onServerThread()) {
+            InboxHandle handle = new InboxHandle();
+            execute(() -> handle.bind(scheduleLoop(group, delayTicks, intervalTicks, iterations, runnable)));
+            return handle;
+        }
+        long runAt = server.getTickCount() + Math.max(0, delayTicks);
+        return submit(group, new LoopTask(runAt, Math.max(1, intervalTicks), Math.max(-1, iterations), runnable));
+    }
+
+    private Handle submit(TaskGroup group, ScheduledTask task) {
+        if (group != null) {
+            group.add(task);
+        }
+        insert(task);
+        return task;
+    }
+
+    public int pendingTasks() {
+        return pending;
+    }
+
+    public Stats stats() {
+        return new Stats(pending, carriedOver, deferredTasks, deferredTicks, maxDeferredTicks);
+    }
+
+    public void resetStats() {
+        deferredTasks = 0;
+        deferredTicks = 0;
+        maxDeferredTicks = 0;
     }
 
     public void tick() {
         if (server == null) {
             return;
         }
+        drainInbox();
         long currentTick = server.getTickCount();
-        while (!tasks.isEmpty() && tasks.peek().runAt <= currentTick) {
-            Runnable runnable = tasks.poll().runnable;
+        while (wheelTick < currentTick) {
+            if (pending == dueCount()) {
+                wheelTick = currentTick;
+                break;
+            }
+            advance(wheelTick + 1);
+        }
+        long started = System.nanoTime();
+        boolean ranAny = false;
+        ScheduledTask task;
+        while ((task = peekDue()) != null) {
+            if (tickBudgetNanos > 0 && ranAny && System.nanoTime() - started >= tickBudgetNanos) {
+                break;
+            }
+            due[task.priority.ordinal()].poll();
+            pending--;
+            if (task.done) {
+                continue;
+            }
+            ranAny = true;
+            long lag = currentTick - task.runAt;
+            if (lag > 0) {
+                deferredTasks++;
+                deferredTicks += lag;
+                maxDeferredTicks = Math.max(maxDeferredTicks, lag);
+            }
+            boolean rearmed = false;
             try {
-                runnable.run();
+                rearmed = task.fire(currentTick);
             } catch (Exception e) {
-                e.printStackTrace();
+                ChatDialogs.LOGGER.error("Failed to run scheduled dialog task", e);
+            }
+            if (rearmed && !task.done) {
+                insert(task);
+            } else if (!task.done) {
+                task.done = true;
+                if (task.group != null) {
+                    task.group.remove(task);
+                }
+                task.release();
             }
         }
-        while (!repeating.isEmpty() && repeating.peek().nextRun <= currentTick) {
-            RepeatingTask task = repeating.poll();
-            boolean conditionMet = false;
+        carriedOver = dueCount();
+    }
+
+    private void drainInbox() {
+        Runnable task;
+        while ((task = inbox.poll()) != null) {
             try {
-                conditionMet = task.condition.get();
+                task.run();
             } catch (Exception e) {
-                e.printStackTrace();
+                ChatDialogs.LOGGER.error("Failed to run submitted dialog task", e);
             }
-            if (conditionMet) {
-                if (task.onComplete != null) {
-                    task.onComplete.run();
-                }
-                continue;
+        }
+    }
+
+    private ScheduledTask peekDue() {
+        for (ArrayDeque<ScheduledTask> queue : due) {
+            ScheduledTask task = queue.peek();
+            if (task != null) {
+                return task;
             }
-            if (currentTick >= task.endTick) {
-                if (task.onTimeout != null) {
-                    task.onTimeout.run();
-                }
-                continue;
+        }
+        return null;
+    }
+
+    private int dueCount() {
+        int count = 0;
+        for (ArrayDeque<ScheduledTask> queue : due) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    private void advance(long tick) {
+        wheelTick = tick;
+        if ((tick & ROOT_MASK) == 0) {
+            cascade(0, tick);
+        }
+        ScheduledTask task = root[(int) (tick & ROOT_MASK)].drain();
+        while (task != null) {
+            ScheduledTask next = task.next;
+            task.prev = null;
+            task.next = null;
+            task.bucket = null;
+            due[task.priority.ordinal()].add(task);
+            task = next;
+        }
+    }
+
+    private void cascade(int level, long tick) {
+        int shift = ROOT_BITS + LEVEL_BITS * level;
+        int index = (int) ((tick >>> shift) & LEVEL_MASK);
+        if (index == 0) {
+            if (level + 1 < LEVELS) {
+                cascade(level + 1, tick);
+            } else {
+                reinsert(overflow);
+            }
+        }
+        reinsert(levels[level][index]);
+    }
+
+    private void reinsert(Bucket bucket) {
+        ScheduledTask task = bucket.drain();
+        while (task != null) {
+            ScheduledTask next = task.next;
+            pending--;
+            insert(task);
+            task = next;
+        }
+    }
+
+    private void insert(ScheduledTask task) {
+        pending++;
+        long delta = task.runAt - wheelTick;
+        if (delta <= 0) {
+            task.bucket = null;
+            due[task.priority.ordinal()].add(task);
+        } else if (delta < ROOT_SIZE) {
+            root[(int) (task.runAt & ROOT_MASK)].append(task);
+        } else if (delta < WHEEL_SPAN) {
+            int level = 0;
+            while (delta >= 1L << (ROOT_BITS + LEVEL_BITS * (level + 1))) {
+                level++;
             }
-            task.nextRun = currentTick + task.interval;
-            repeating.add(task);
+            int shift = ROOT_BITS + LEVEL_BITS * level;
+            levels[level][(int) ((task.runAt >>> shift) & LEVEL_MASK)].append(task);
+        } else {
+            overflow.append(task);
+        }
+    }
+
+    private void clear() {
+        for (Bucket bucket : root) {
+            bucket.cancelAll();
+        }
+        for (Bucket[] level : levels) {
+            for (Bucket bucket : level) {
+                bucket.cancelAll();
+            }
+        }
+        overflow.cancelAll();
+        for (ArrayDeque<ScheduledTask> queue : due) {
+            ScheduledTask task;
+            while ((task = queue.poll()) != null) {
+                task.cancel();
+            }
+        }
+        pending = 0;
+        carriedOver = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayDeque<ScheduledTask>[] newQueues() {
+        ArrayDeque<ScheduledTask>[] queues = new ArrayDeque[Priority.values().length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+        return queues;
+    }
+
+    private Bucket[] newBuckets(int size) {
+        Bucket[] buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new Bucket();
         }
+        return buckets;
     }
 }
@@ -0,0 +1,90 @@
+package ru.nlolik.dialog.runtime;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.player.Inventory;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Per-player item counts, built with one pass over the inventory the first time they are needed
+ * and reused until the inventory reports a change, a dialog action runs for the player or the
+ * server tick ends. Vanilla does not report every stack change (eating or placing blocks shrinks
+ * stacks in place), so counts are never kept past the current tick. Only used from the server
+ * thread.
+ */
+public final class InventoryIndex {
+    private static final class Counts {
+        final Map<Item, Integer> items = new IdentityHashMap<>();
+        long tick;
+        int timesChanged;
+        boolean stale = true;
+    }
+
+    private final Map<UUID, Counts> players = new HashMap<>();
+    private long lastSweep;
+
+    public int count(ServerPlayer player, Item item) {
+        Inventory inventory = player.getInventory();
+        MinecraftServer server = player.getServer();
+        if (server == null || !server.isSameThread()) {
+            return scan(inventory, item);
+        }
+        long tick = server.getTickCount();
+        sweep(tick);
+        Counts counts = players.computeIfAbsent(player.getUUID(), id -> new Counts());
+        if (counts.stale || counts.tick != tick || counts.timesChanged != inventory.getTimesChanged()) {
+            rebuild(counts, inventory, tick);
+        }
+        return counts.items.getOrDefault(item, 0);
+    }
+
+    public void invalidate(UUID playerId) {
+        Counts counts = players.get(playerId);
+        if (counts != null) {
+            counts.stale = true;
+        }
+    }
+
+    public void clear() {
+        players.clear();
+        lastSweep = 0;
+    }
+
+    private static void rebuild(Counts counts, Inventory inventory, long tick) {
+        counts.items.clear();
+        counts.tick = tick;
+        counts.stale = false;
+        counts.timesChanged = inventory.getTimesChanged();
+        for (int i = 0; i < inventory.getContainerSize(); i++) {
+            ItemStack stack = inventory.getItem(i);
+            if (!stack.isEmpty()) {
+                counts.items.merge(stack.getItem(), stack.getCount(), Integer::sum);
+            }
+        }
+    }
+
+    private static int scan(Inventory inventory, Item item) {
+        int found = 0;
+        for (int i = 0; i < inventory.getContainerSize(); i++) {
+            ItemStack stack = inventory.getItem(i);
+            if (!stack.isEmpty() && stack.is(item)) {
+                found += stack.getCount();
+            }
+        }
+        return found;
+    }
+
+    private void sweep(long tick) {
+        if (tick - lastSweep < 1200) {
+            return;
+        }
+        lastSweep = tick;
+        players.values().removeIf(counts -> tick - counts.tick >= 1200);
+    }
+}
@@ -0,0 +1,211 @@
+package ru.nlolik.dialog.runtime;
+
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.util.AbortableIterationConsumer;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.entity.EntityTypeTest;
+import net.minecraft.world.phys.AABB;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Counts living entities around a player for {@code {mob_count}} without collecting them into a
+ * list, and reuses the result for the same player and radius for a configurable number of
+ * ticks.
+ *
+ * <p>Radii at or above the grid radius are answered from a per-level snapshot of living entities
+ * grouped by section, rebuilt at most once per cache window. Sections fully inside the box are
+ * added up from their counts and only the sections on its edge check entity positions. Grid
+ * counts go by entity position rather than bounding box, so they can differ from a direct scan
+ * right at the edge of the radius.
+ */
+public final class MobCountService {
+    private static final EntityTypeTest<Entity, LivingEntity> LIVING = EntityTypeTest.forClass(LivingEntity.class);
+
+    private record CachedCount(ServerLevel level, long tick, int count) {
+    }
+
+    private final Map<UUID, Map<Integer, CachedCount>> counts = new HashMap<>();
+    private final Map<ServerLevel, Grid> grids = new IdentityHashMap<>();
+    private volatile int cacheTicks = 10;
+    private volatile int gridRadius;
+    private long lastSweep;
+
+    public void configure(int cacheTicks, int gridRadius) {
+        this.cacheTicks = Math.max(0, cacheTicks);
+        this.gridRadius = Math.max(0, gridRadius);
+    }
+
+    public void clear() {
+        counts.clear();
+        grids.clear();
+        lastSweep = 0;
+    }
+
+    public int count(ServerPlayer player, int radius) {
+        ServerLevel level = player.serverLevel();
+        MinecraftServer server = level.getServer();
+        long tick = server.getTickCount();
+        if (!server.isSameThread()) {
+            return scan(level, player, box(player, radius));
+        }
+        if (cacheTicks <= 0) {
+            return countNow(level, player, radius, tick);
+        }
+        sweep(tick);
+        Map<Integer, CachedCount> byRadius = counts.computeIfAbsent(player.getUUID(), id -> new HashMap<>());
+        CachedCount cached = byRadius.get(radius);
+        if (cached != null && cached.level() == level && tick - cached.tick() < cacheTicks) {
+            return cached.count();
+        }
+        int count = countNow(level, player, radius, tick);
+        byRadius.put(radius, new CachedCount(level, tick, count));
+        return count;
+    }
+
+    private int countNow(ServerLevel level, ServerPlayer player, int radius, long tick) {
+        AABB box = box(player, radius);
+        if (gridRadius <= 0 || radius < gridRadius) {
+            return scan(level, player, box);
+        }
+        Grid grid = grids.computeIfAbsent(level, key -> new Grid());
+        if (grid.builtAt == Long.MIN_VALUE || tick - grid.builtAt >= Math.max(1, cacheTicks)) {
+            grid.rebuild(level, tick);
+        }
+        return grid.count(box, player.getId());
+    }
+
+    private static AABB box(ServerPlayer player, int radius) {
+        return player.getBoundingBox().inflate(radius);
+    }
+
+    private static int scan(ServerLevel level, ServerPlayer player, AABB box) {
+        int[] count = {0};
+        level.getEntities().get(LIVING, box, entity -> {
+            if (entity != player) {
+                count[0]++;
+            }
+            return AbortableIterationConsumer.Continuation.CONTINUE;
+        });
+        return count[0];
+    }
+
+    private void sweep(long tick) {
+        if (tick - lastSweep < Math.max(20, cacheTicks)) {
+            return;
+        }
+        lastSweep = tick;
+        Iterator<Map<Integer, CachedCount>> players = counts.values().iterator();
+        while (players.hasNext()) {
+            Map<Integer, CachedCount> byRadius = players.next();
+            byRadius.values().removeIf(cached -> tick - cached.tick() >= cacheTicks);
+            if (byRadius.isEmpty()) {
+                players.remove();
+            }
+        }
+        grids.values().removeIf(grid -> tick - grid.builtAt >= Math.max(20, cacheTicks));
+    }
+
+    private static final class Grid {
+        final Map<Long, Section> sections = new HashMap<>();
+        long builtAt = Long.MIN_VALUE;
+
+        void rebuild(ServerLevel level, long tick) {
+            sections.clear();
+            builtAt = tick;
+            for (Entity entity : level.getAllEntities()) {
+                if (!(entity instanceof LivingEntity)) {
+                    continue;
+                }
+                long key = SectionPos.asLong(
+                        SectionPos.blockToSectionCoord(Mth.floor(entity.getX())),
+                        SectionPos.blockToSectionCoord(Mth.floor(entity.getY())),
+                        SectionPos.blockToSectionCoord(Mth.floor(entity.getZ())));
+                sections.computeIfAbsent(key, k -> new Section()).add(entity);
+            }
+        }
+
+        int count(AABB box, int excludedId) {
+            int minX = SectionPos.blockToSectionCoord(Mth.floor(box.minX));
+            int minY = SectionPos.blockToSectionCoord(Mth.floor(box.minY));
+            int minZ = SectionPos.blockToSectionCoord(Mth.floor(box.minZ));
+            int maxX = SectionPos.blockToSectionCoord(Mth.floor(box.maxX));
+            int maxY = SectionPos.blockToSectionCoord(Mth.floor(box.maxY));
+            int maxZ = SectionPos.blockToSectionCoord(Mth.floor(box.maxZ));
+            long volume = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+            int total = 0;
+            if (volume > sections.size()) {
+                for (Map.Entry<Long, Section> entry : sections.entrySet()) {
+                    long key = entry.getKey();
+                    int x = SectionPos.x(key);
+                    int y = SectionPos.y(key);
+                    int z = SectionPos.z(key);
+                    if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ) {
+                        total += entry.getValue().count(x, y, z, box, excludedId);
+                    }
+                }
+                return total;
+            }
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        Section section = sections.get(SectionPos.asLong(x, y, z));
+                        if (section != null) {
+                            total += section.count(x, y, z, box, excludedId);
+                        }
+                    }
+                }
+            }
+            return total;
+        }
+    }
+
+    private static final class Section {
+        int size;
+        int[] ids = new int[4];
+        double[] positions = new double[12];
+        boolean hasPlayers;
+
+        void add(Entity entity) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                positions = Arrays.copyOf(positions, size * 6);
+            }
+            ids[size] = entity.getId();
+            positions[size * 3] = entity.getX();
+            positions[size * 3 + 1] = entity.getY();
+            positions[size * 3 + 2] = entity.getZ();
+            hasPlayers |= entity instanceof Player;
+            size++;
+        }
+
+        int count(int sectionX, int sectionY, int sectionZ, AABB box, int excludedId) {
+            if (!hasPlayers && inside(sectionX, box.minX, box.maxX) && inside(sectionY, box.minY, box.maxY) && inside(sectionZ, box.minZ, box.maxZ)) {
+                return size;
+            }
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (ids[i] != excludedId && box.contains(positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private static boolean inside(int sectionCoord, double min, double max) {
+            int start = SectionPos.sectionToBlockCoord(sectionCoord);
+            return start >= min && start + 16 <= max;
+        }
+    }
+}
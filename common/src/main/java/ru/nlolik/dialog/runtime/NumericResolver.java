@@ -0,0 +1,23 @@
+package ru.nlolik.dialog.runtime;
+
+/**
+ * Placeholder resolver for numeric values. Conditions read these through
+ * {@link PlaceholderRegistry#bindNumber(String)} and compare the number directly, while text
+ * gets the formatted value.
+ */
+@FunctionalInterface
+public interface NumericResolver extends PlaceholderResolver {
+    double resolveNumber(DialogContext context);
+
+    @Override
+    default String resolve(DialogContext context) {
+        return format(resolveNumber(context));
+    }
+
+    static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1.0E15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
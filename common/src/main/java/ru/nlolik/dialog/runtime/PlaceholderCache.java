@@ -0,0 +1,112 @@
+package ru.nlolik.dialog.runtime;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import ru.nlolik.dialog.DialogManager;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Remembers placeholder values per player for the rest of the current server tick, so that a
+ * node render with several labels and conditions reads each scoreboard or world value once.
+ * Numeric placeholders keep their number in the same slot, so comparisons in conditions and the
+ * formatted text share one read.
+ * Dialog actions drop the player's values after they run; changes made by anything else show up
+ * on the next tick at the latest. Only used from the server thread.
+ */
+public final class PlaceholderCache {
+    private static final class Slot {
+        String text;
+        double number;
+        boolean hasNumber;
+    }
+
+    private final Map<UUID, Map<String, Slot>> values = new HashMap<>();
+    private long tick = Long.MIN_VALUE;
+
+    PlaceholderResolver memoize(String key, PlaceholderResolver resolver) {
+        return context -> text(key, resolver, context);
+    }
+
+    NumericResolver memoizeNumber(String key, NumericResolver resolver) {
+        return new NumericResolver() {
+            @Override
+            public double resolveNumber(DialogContext context) {
+                Slot slot = slot(key, context);
+                return slot == null ? resolver.resolveNumber(context) : number(slot, resolver, context);
+            }
+
+            @Override
+            public String resolve(DialogContext context) {
+                return text(key, resolver, context);
+            }
+        };
+    }
+
+    public void invalidate(UUID playerId) {
+        Map<String, Slot> playerValues = values.get(playerId);
+        if (playerValues != null) {
+            playerValues.clear();
+        }
+    }
+
+    public void clear() {
+        values.clear();
+        tick = Long.MIN_VALUE;
+    }
+
+    private String text(String key, PlaceholderResolver resolver, DialogContext context) {
+        Slot slot = slot(key, context);
+        if (slot == null) {
+            return resolver.resolve(context);
+        }
+        if (slot.text == null) {
+            slot.text = resolver instanceof NumericResolver numeric
+                    ? NumericResolver.format(number(slot, numeric, context))
+                    : resolver.resolve(context);
+        }
+        return slot.text;
+    }
+
+    private static double number(Slot slot, NumericResolver resolver, DialogContext context) {
+        if (!slot.hasNumber) {
+            slot.number = resolver.resolveNumber(context);
+            slot.hasNumber = true;
+        }
+        return slot.number;
+    }
+
+    /**
+     * Returns the slot of {@code key} for the context's player in the current tick, or
+     * {@code null} when values cannot be cached because there is no player or the call is not on
+     * the server thread.
+     */
+    private Slot slot(String key, DialogContext context) {
+        ServerPlayer player = context.player();
+        MinecraftServer server = DialogManager.server();
+        if (player == null || server == null || !server.isSameThread()) {
+            return null;
+        }
+        long currentTick = server.getTickCount();
+        if (currentTick != tick) {
+            tick = currentTick;
+            expire();
+        }
+        return values.computeIfAbsent(player.getUUID(), id -> new HashMap<>()).computeIfAbsent(key, k -> new Slot());
+    }
+
+    private void expire() {
+        Iterator<Map<String, Slot>> iterator = values.values().iterator();
+        while (iterator.hasNext()) {
+            Map<String, Slot> playerValues = iterator.next();
+            if (playerValues.isEmpty()) {
+                iterator.remove();
+            } else {
+                playerValues.clear();
+            }
+        }
+    }
+}
@@ -3,109 +3,117 @@ package ru.nlolik.dialog.runtime;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.util.Mth;
-import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.scores.Objective;
 import net.minecraft.world.scores.Score;
 import net.minecraft.world.scores.Scoreboard;
 import ru.nlolik.dialog.DialogManager;
+import ru.nlolik.dialog.condition.ConditionDependency;
 
 import java.time.LocalDate;
+import java.util.HashSet;
 import java.util.Locale;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
 
 public final class PlaceholderEngine {
-    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([^}]+)}");
-
     private PlaceholderEngine() {
     }
 
+    /**
+     * Resolves an ad-hoc string. Values known at load time should be compiled once with
+     * {@link PlaceholderTemplate#compile(String)} instead.
+     */
     public static String resolve(String input, DialogContext context) {
         if (input == null || input.isEmpty()) {
             return "";
         }
-        Matcher matcher = PLACEHOLDER.matcher(input);
-        StringBuffer buffer = new StringBuffer();
-        while (matcher.find()) {
-            String replacement = resolvePlaceholder(matcher.group(1), context);
-            matcher.appendReplacement(buffer, Matcher.quoteReplacement(replacement));
+        return PlaceholderTemplate.compile(input).resolve(context);
+    }
+
+    /**
+     * Returns the scoreboard objectives a template depends on, or {@code null} if it contains a
+     * placeholder whose value can change without a change notification.
+     */
+    public static Set<ConditionDependency> dependencies(PlaceholderTemplate template) {
+        if (template == null) {
+            return Set.of();
+        }
+        Set<ConditionDependency> dependencies = new HashSet<>();
+        for (String key : template.keys()) {
+            String lower = key.toLowerCase(Locale.ROOT);
+            if (key.startsWith("score:")) {
+                dependencies.add(ConditionDependency.score(key.substring("score:".length())));
+            } else if (lower.equals("player_score")) {
+                dependencies.add(ConditionDependency.score("player_score"));
+            } else if (lower.equals("player_name") || lower.equals("player_uuid") || lower.equals("event_name") || key.startsWith("event.")) {
+                continue;
+            } else {
+                return null;
+            }
         }
-        matcher.appendTail(buffer);
-        return buffer.toString();
+        return Set.copyOf(dependencies);
+    }
+
+    static void registerBuiltins(PlaceholderRegistry registry) {
+        registry.register("player_name", context -> context.player().getGameProfile().getName(), true);
+        registry.register("player_uuid", context -> context.player().getUUID().toString(), true);
+        registry.register("player_health", number(context -> Mth.floor(context.player().getHealth())), true);
+        registry.register("player_coords.x", number(context -> Mth.floor(context.player().getX())), true);
+        registry.register("player_coords.y", number(context -> Mth.floor(context.player().getY())), true);
+        registry.register("player_coords.z", number(context -> Mth.floor(context.player().getZ())), true);
+        registry.register("world_name", context -> context.player().serverLevel().dimension().location().toString(), true);
+        registry.register("time", PlaceholderEngine::formatTime, true);
+        registry.register("date", context -> LocalDate.now().toString(), true);
+        registry.register("event_name", context -> eventValue(context, "event_name"));
+        registry.register("player_score", number(context -> getScore(context.player(), "player_score")), true);
+        registry.register("mob_count", number(context -> countMobs(context.player(), 8)), true);
+        registry.registerPrefix("mob_count:", PlaceholderEngine::mobCount, true);
+        registry.registerPrefix("random:", PlaceholderEngine::random);
+        registry.registerPrefix("score:", objective -> number(context -> getScore(context.player(), objective)), true);
+        registry.registerPrefix("event.", key -> context -> eventValue(context, key));
+    }
+
+    private static NumericResolver number(NumericResolver resolver) {
+        return resolver;
     }
 
-    private static String resolvePlaceholder(String key, DialogContext context) {
-        ServerPlayer player = context.player();
-        ServerLevel level = player.serverLevel();
-        Map<String, Object> event = context.eventData();
-        switch (key.toLowerCase(Locale.ROOT)) {
-            case "player_name":
-                return player.getGameProfile().getName();
-            case "player_uuid":
-                return player.getUUID().toString();
-            case "player_health":
-                return String.valueOf(Mth.floor(player.getHealth()));
-            case "player_coords.x":
-                return String.valueOf(Mth.floor(player.getX()));
-            case "player_coords.y":
-                return String.valueOf(Mth.floor(player.getY()));
-            case "player_coords.z":
-                return String.valueOf(Mth.floor(player.getZ()));
-            case "world_name":
-                return level.dimension().location().toString();
-            case "time":
-                long dayTime = level.getDayTime() % 24000L;
-                int hours = (int) ((dayTime / 1000 + 6) % 24);
-                int minutes = (int) ((dayTime % 1000) * 60 / 1000.0);
-                return String.format(Locale.ROOT, "%02d:%02d", hours, minutes);
-            case "date":
-                return LocalDate.now().toString();
-            case "event_name":
-                Object eventName = event.get("event_name");
-                return eventName == null ? "" : eventName.toString();
-            case "player_score":
-                return String.valueOf(getScore(player, "player_score"));
-            default:
-                break;
+    private static PlaceholderResolver random(String argument) {
+        String[] parts = argument.split(":");
+        if (parts.length != 2) {
+            return null;
         }
+        try {
+            int first = Integer.parseInt(parts[0]);
+            int second = Integer.parseInt(parts[1]);
+            int min = Math.min(first, second);
+            int bound = Math.max(first, second) - min + 1;
+            return number(context -> DialogManager.random().nextInt(bound) + min);
+        } catch (NumberFormatException ignored) {
+            return null;
+        }
+    }
 
-        if (key.startsWith("random:")) {
-            String[] parts = key.split(":");
-            if (parts.length == 3) {
-                try {
-                    int min = Integer.parseInt(parts[1]);
-                    int max = Integer.parseInt(parts[2]);
-                    if (max < min) {
-                        int tmp = min;
-                        min = max;
-                        max = tmp;
-                    }
-                    return String.valueOf(DialogManager.random().nextInt(max - min + 1) + min);
-                } catch (NumberFormatException ignored) {
-                }
-            }
-        } else if (key.startsWith("score:")) {
-            String objective = key.substring("score:".length());
-            return String.valueOf(getScore(player, objective));
-        } else if (key.startsWith("mob_count")) {
-            int radius = 8;
-            if (key.contains(":")) {
-                String[] parts = key.split(":");
-                if (parts.length >= 2) {
-                    try {
-                        radius = Integer.parseInt(parts[1]);
-                    } catch (NumberFormatException ignored) {
-                    }
-                }
-            }
-            return String.valueOf(countMobs(player, radius));
-        } else if (key.startsWith("event.")) {
-            String eventKey = key.substring("event.".length());
-            Object value = event.get(eventKey);
-            return value == null ? "" : value.toString();
+    private static PlaceholderResolver mobCount(String argument) {
+        int radius = 8;
+        String[] parts = argument.split(":");
+        try {
+            radius = Integer.parseInt(parts[0]);
+        } catch (NumberFormatException ignored) {
         }
-        return "{" + key + "}";
+        int boundRadius = radius;
+        return number(context -> countMobs(context.player(), boundRadius));
+    }
+
+    private static String eventValue(DialogContext context, String key) {
+        Object value = context.eventData().get(key);
+        return value == null ? "" : value.toString();
+    }
+
+    private static String formatTime(DialogContext context) {
+        ServerLevel level = context.player().serverLevel();
+        long dayTime = level.getDayTime() % 24000L;
+        int hours = (int) ((dayTime / 1000 + 6) % 24);
+        int minutes = (int) ((dayTime % 1000) * 60 / 1000.0);
+        return String.format(Locale.ROOT, "%02d:%02d", hours, minutes);
     }
 
     private static int getScore(ServerPlayer player, String objectiveName) {
@@ -119,6 +127,6 @@ public final class PlaceholderEngine {
     }
 
     private static int countMobs(ServerPlayer player, int radius) {
-        return (int) player.level().getEntitiesOfClass(LivingEntity.class, player.getBoundingBox().inflate(radius), e -> e != player).size();
+        return DialogManager.mobCounts().count(player, radius);
     }
 }
@@ -0,0 +1,11 @@
+package ru.nlolik.dialog.runtime;
+
+/**
+ * Creates resolvers for placeholders that take an argument, such as {@code {score:<objective>}}.
+ * Called once per placeholder when a template is compiled, so argument parsing happens there.
+ * Returning {@code null} keeps the placeholder in the text as written.
+ */
+@FunctionalInterface
+public interface PlaceholderFactory {
+    PlaceholderResolver create(String argument);
+}
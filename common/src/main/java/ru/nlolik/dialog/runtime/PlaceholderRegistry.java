@@ -0,0 +1,197 @@
+package ru.nlolik.dialog.runtime;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Placeholders available to dialog text, keyed by name. Other mods can add their own, ideally
+ * namespaced like {@code economy:balance}, through {@code DialogManager.placeholders()}.
+ *
+ * <p>Placeholders are bound when dialogs are loaded. A key that nothing handles yet is looked up
+ * again after later registrations, so mods that initialise after ChatDialogs can still register
+ * theirs; until then the key is shown as written.
+ *
+ * <p>Resolvers registered as cacheable are evaluated at most once per player and tick; leave
+ * that off for values that must differ between uses, such as random numbers, or that depend on
+ * the event being handled.
+ *
+ * <p>Resolvers that implement {@link NumericResolver} are also compared as numbers by dialog
+ * conditions without going through their text; cacheable ones share the per-tick value with
+ * their text.
+ */
+public final class PlaceholderRegistry {
+    private record Named(PlaceholderResolver resolver, boolean cacheable) {
+    }
+
+    private record Prefixed(PlaceholderFactory factory, boolean cacheable) {
+    }
+
+    private record Binding(PlaceholderResolver resolver, boolean cacheable, String cacheKey) {
+    }
+
+    private final Map<String, Named> names = new ConcurrentHashMap<>();
+    private final Map<String, Prefixed> prefixes = new ConcurrentHashMap<>();
+    private final PlaceholderCache cache = new PlaceholderCache();
+    private final AtomicInteger version = new AtomicInteger();
+
+    public PlaceholderRegistry() {
+        PlaceholderEngine.registerBuiltins(this);
+    }
+
+    /**
+     * Registers {@code {name}}. Names are case-insensitive and replace any earlier resolver with
+     * the same name.
+     */
+    public void register(String name, PlaceholderResolver resolver) {
+        register(name, resolver, false);
+    }
+
+    public void register(String name, PlaceholderResolver resolver, boolean cacheable) {
+        names.put(normalise(name), new Named(resolver, cacheable));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Registers every placeholder starting with {@code prefix}, which has to end with {@code ':'}
+     * or {@code '.'}. The rest of the key is passed to the factory unchanged.
+     */
+    public void registerPrefix(String prefix, PlaceholderFactory factory) {
+        registerPrefix(prefix, factory, false);
+    }
+
+    public void registerPrefix(String prefix, PlaceholderFactory factory, boolean cacheable) {
+        String key = normalise(prefix);
+        char last = key.charAt(key.length() - 1);
+        if (last != ':' && last != '.') {
+            throw new IllegalArgumentException("Placeholder prefix '" + prefix + "' must end with ':' or '.'");
+        }
+        prefixes.put(key, new Prefixed(factory, cacheable));
+        version.incrementAndGet();
+    }
+
+    public boolean unregister(String name) {
+        boolean removed = names.remove(normalise(name)) != null;
+        version.incrementAndGet();
+        return removed;
+    }
+
+    public boolean unregisterPrefix(String prefix) {
+        boolean removed = prefixes.remove(normalise(prefix)) != null;
+        version.incrementAndGet();
+        return removed;
+    }
+
+    public boolean isRegistered(String key) {
+        return bind(key) != null;
+    }
+
+    /**
+     * Returns the resolver for a placeholder key, or {@code null} if nothing handles it.
+     */
+    public PlaceholderResolver bind(String key) {
+        Binding binding = lookup(key);
+        if (binding == null) {
+            return null;
+        }
+        if (!binding.cacheable()) {
+            return binding.resolver();
+        }
+        return binding.resolver() instanceof NumericResolver numeric
+                ? cache.memoizeNumber(binding.cacheKey(), numeric)
+                : cache.memoize(binding.cacheKey(), binding.resolver());
+    }
+
+    /**
+     * Returns a resolver for a key that nothing handles yet. It prints {@code {key}} and binds to
+     * the real resolver once one is registered; lookups are only repeated after the registry has
+     * changed.
+     */
+    PlaceholderResolver bindLate(String key) {
+        return new Late(key, version.get());
+    }
+
+    /**
+     * Returns the resolver for a placeholder key if it was registered as a
+     * {@link NumericResolver}, or {@code null} otherwise. Cacheable placeholders are read once per
+     * player and tick, whether as a number or as text.
+     */
+    public NumericResolver bindNumber(String key) {
+        Binding binding = lookup(key);
+        if (binding == null || !(binding.resolver() instanceof NumericResolver numeric)) {
+            return null;
+        }
+        return binding.cacheable() ? cache.memoizeNumber(binding.cacheKey(), numeric) : numeric;
+    }
+
+    private Binding lookup(String key) {
+        String lower = key.toLowerCase(Locale.ROOT);
+        Named named = names.get(lower);
+        if (named != null) {
+            return new Binding(named.resolver(), named.cacheable(), lower);
+        }
+        int separator = separatorIndex(key);
+        if (separator < 0) {
+            return null;
+        }
+        Prefixed prefixed = prefixes.get(lower.substring(0, separator + 1));
+        if (prefixed == null) {
+            return null;
+        }
+        PlaceholderResolver resolver = prefixed.factory().create(key.substring(separator + 1));
+        return resolver == null ? null : new Binding(resolver, prefixed.cacheable(), key);
+    }
+
+    public PlaceholderCache cache() {
+        return cache;
+    }
+
+    private final class Late implements PlaceholderResolver {
+        private final String key;
+        private final String literal;
+        private volatile int checked;
+        private volatile PlaceholderResolver bound;
+
+        Late(String key, int checked) {
+            this.key = key;
+            this.literal = "{" + key + "}";
+            this.checked = checked;
+        }
+
+        @Override
+        public String resolve(DialogContext context) {
+            PlaceholderResolver resolver = bound;
+            if (resolver == null) {
+                int current = version.get();
+                if (current == checked) {
+                    return literal;
+                }
+                resolver = bind(key);
+                checked = current;
+                if (resolver == null) {
+                    return literal;
+                }
+                bound = resolver;
+            }
+            return resolver.resolve(context);
+        }
+    }
+
+    private static int separatorIndex(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == ':' || c == '.') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String normalise(String name) {
+        if (name == null || name.isBlank() || name.indexOf('{') >= 0 || name.indexOf('}') >= 0) {
+            throw new IllegalArgumentException("Invalid placeholder name '" + name + "'");
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
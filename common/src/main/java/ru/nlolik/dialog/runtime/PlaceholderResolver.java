@@ -0,0 +1,6 @@
+package ru.nlolik.dialog.runtime;
+
+@FunctionalInterface
+public interface PlaceholderResolver {
+    String resolve(DialogContext context);
+}
@@ -0,0 +1,158 @@
+package ru.nlolik.dialog.runtime;
+
+import ru.nlolik.dialog.DialogManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Placeholder string split once into literal segments and bound placeholder resolvers.
+ * Templates are immutable and can be shared between threads; a template without placeholders
+ * resolves to its source string without allocating.
+ *
+ * <p>Unknown keys made of name characters ({@code a-z}, digits, {@code _ - : .}) are bound late,
+ * so placeholders registered after the template was compiled are still picked up. Other text in
+ * braces, such as JSON in commands, stays literal.
+ */
+public final class PlaceholderTemplate {
+    public static final PlaceholderTemplate EMPTY = literal("");
+
+    private static final ThreadLocal<Buffer> BUFFER = ThreadLocal.withInitial(Buffer::new);
+
+    private final String source;
+    private final String[] literals;
+    private final String[] keys;
+    private final PlaceholderResolver[] resolvers;
+
+    private PlaceholderTemplate(String source, String[] literals, String[] keys, PlaceholderResolver[] resolvers) {
+        this.source = source;
+        this.literals = literals;
+        this.keys = keys;
+        this.resolvers = resolvers;
+    }
+
+    /**
+     * Compiles {@code input}, or returns {@code null} for a {@code null} input so that optional
+     * values stay optional.
+     */
+    public static PlaceholderTemplate compile(String input) {
+        if (input == null) {
+            return null;
+        }
+        if (input.indexOf('{') < 0) {
+            return literal(input);
+        }
+        List<String> literals = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<PlaceholderResolver> resolvers = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int index = 0;
+        while (index < input.length()) {
+            char c = input.charAt(index);
+            int end = c == '{' ? input.indexOf('}', index + 1) : -1;
+            if (end <= index + 1) {
+                literal.append(c);
+                index++;
+                continue;
+            }
+            String key = input.substring(index + 1, end);
+            PlaceholderResolver resolver = DialogManager.placeholders().bind(key);
+            if (resolver == null && isName(key)) {
+                resolver = DialogManager.placeholders().bindLate(key);
+            }
+            if (resolver == null) {
+                literal.append(input, index, end + 1);
+            } else {
+                literals.add(literal.toString());
+                literal.setLength(0);
+                keys.add(key);
+                resolvers.add(resolver);
+            }
+            index = end + 1;
+        }
+        if (resolvers.isEmpty()) {
+            return literal(input);
+        }
+        literals.add(literal.toString());
+        return new PlaceholderTemplate(input,
+                literals.toArray(String[]::new),
+                keys.toArray(String[]::new),
+                resolvers.toArray(PlaceholderResolver[]::new));
+    }
+
+    private static boolean isName(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_' || c == '-' || c == ':' || c == '.')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static PlaceholderTemplate literal(String text) {
+        return new PlaceholderTemplate(text, new String[]{text}, new String[0], new PlaceholderResolver[0]);
+    }
+
+    public String resolve(DialogContext context) {
+        if (resolvers.length == 0) {
+            return source;
+        }
+        if (resolvers.length == 1 && literals[0].isEmpty() && literals[1].isEmpty()) {
+            return resolvers[0].resolve(context);
+        }
+        Buffer buffer = BUFFER.get();
+        if (buffer.busy) {
+            StringBuilder builder = new StringBuilder(source.length() + 16);
+            appendTo(builder, context);
+            return builder.toString();
+        }
+        buffer.busy = true;
+        try {
+            StringBuilder builder = buffer.builder;
+            builder.setLength(0);
+            appendTo(builder, context);
+            return builder.toString();
+        } finally {
+            buffer.busy = false;
+        }
+    }
+
+    public void appendTo(StringBuilder builder, DialogContext context) {
+        builder.append(literals[0]);
+        for (int i = 0; i < resolvers.length; i++) {
+            builder.append(resolvers[i].resolve(context));
+            builder.append(literals[i + 1]);
+        }
+    }
+
+    public boolean isConstant() {
+        return resolvers.length == 0;
+    }
+
+    public boolean isBlank() {
+        return source.isBlank();
+    }
+
+    public String source() {
+        return source;
+    }
+
+    /**
+     * Keys of the placeholders that are resolved at runtime, in template order, including keys
+     * that are bound late. Text in braces that is kept literal is not listed.
+     */
+    public List<String> keys() {
+        return List.of(keys);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private static final class Buffer {
+        final StringBuilder builder = new StringBuilder(256);
+        boolean busy;
+    }
+}
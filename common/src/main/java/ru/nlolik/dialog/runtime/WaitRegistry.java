@@ -0,0 +1,113 @@
+package ru.nlolik.dialog.runtime;
+
+import ru.nlolik.dialog.condition.ConditionDependency;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Wakes waiting scheduler tasks when something their condition depends on changes for a player,
+ * so that waits do not have to poll every few ticks. Only used from the server thread.
+ */
+public class WaitRegistry {
+    private static final int SWEEP_INTERVAL = 256;
+
+    private record Waiter(DialogScheduler.Handle handle, Runnable listener) {
+    }
+
+    private final Map<UUID, Map<ConditionDependency, List<Waiter>>> waiters = new HashMap<>();
+    private int registrations;
+
+    public void register(UUID playerId, ConditionDependency dependency, DialogScheduler.Handle handle) {
+        register(playerId, dependency, handle, null);
+    }
+
+    /**
+     * Registers {@code handle} to be woken when {@code dependency} changes for the player.
+     * {@code listener} runs right before the wake-up and may be {@code null}.
+     */
+    public void register(UUID playerId, ConditionDependency dependency, DialogScheduler.Handle handle, Runnable listener) {
+        if (handle.isDone()) {
+            return;
+        }
+        List<Waiter> list = waiters.computeIfAbsent(playerId, key -> new HashMap<>()).computeIfAbsent(dependency, key -> new ArrayList<>());
+        list.removeIf(waiter -> waiter.handle().isDone());
+        list.add(new Waiter(handle, listener));
+        if (++registrations >= SWEEP_INTERVAL) {
+            registrations = 0;
+            sweep();
+        }
+    }
+
+    public void notify(UUID playerId, ConditionDependency dependency) {
+        Map<ConditionDependency, List<Waiter>> byDependency = waiters.get(playerId);
+        if (byDependency == null) {
+            return;
+        }
+        List<Waiter> list = byDependency.get(dependency);
+        if (list == null) {
+            return;
+        }
+        wake(list, true);
+        if (list.isEmpty()) {
+            byDependency.remove(dependency);
+            if (byDependency.isEmpty()) {
+                waiters.remove(playerId);
+            }
+        }
+    }
+
+    /**
+     * Wakes every score and inventory wait of the player, for changes that cannot be narrowed
+     * down such as arbitrary commands.
+     */
+    public void notifyPlayer(UUID playerId) {
+        Map<ConditionDependency, List<Waiter>> byDependency = waiters.get(playerId);
+        if (byDependency == null) {
+            return;
+        }
+        for (Map.Entry<ConditionDependency, List<Waiter>> entry : byDependency.entrySet()) {
+            if (entry.getKey().kind() != ConditionDependency.Kind.EVENT) {
+                wake(entry.getValue(), false);
+            }
+        }
+    }
+
+    public void clear() {
+        waiters.clear();
+        registrations = 0;
+    }
+
+    private void wake(List<Waiter> list, boolean runListeners) {
+        Iterator<Waiter> iterator = list.iterator();
+        while (iterator.hasNext()) {
+            Waiter waiter = iterator.next();
+            if (waiter.handle().isDone()) {
+                iterator.remove();
+                continue;
+            }
+            if (runListeners && waiter.listener() != null) {
+                waiter.listener().run();
+            }
+            waiter.handle().wake();
+        }
+    }
+
+    private void sweep() {
+        Iterator<Map<ConditionDependency, List<Waiter>>> players = waiters.values().iterator();
+        while (players.hasNext()) {
+            Map<ConditionDependency, List<Waiter>> byDependency = players.next();
+            byDependency.values().removeIf(list -> {
+                list.removeIf(waiter -> waiter.handle().isDone());
+                return list.isEmpty();
+            });
+            if (byDependency.isEmpty()) {
+                players.remove();
+            }
+        }
+    }
+}
@@ -14,6 +14,7 @@ import net.minecraft.world.InteractionResultHolder;
 import net.minecraft.world.item.ItemStack;
 import ru.nlolik.ChatDialogs;
 import ru.nlolik.dialog.DialogManager;
+import ru.nlolik.dialog.event.DialogEventType;
 
 public final class ChatDialogsFabric implements ModInitializer {
     @Override
@@ -26,19 +27,19 @@ public final class ChatDialogsFabric implements ModInitializer {
         ServerTickEvents.END_SERVER_TICK.register(server -> ChatDialogs.tickServer());
 
         PlayerBlockBreakEvents.AFTER.register((world, player, pos, state, blockEntity) -> {
-            if (!world.isClientSide() && player instanceof ServerPlayer serverPlayer) {
+            if (!world.isClientSide() && DialogManager.events().hasListeners(DialogEventType.ON_BLOCK_BREAK) && player instanceof ServerPlayer serverPlayer) {
                 DialogManager.events().handleBlockBreak(serverPlayer, state, pos);
             }
         });
 
         ServerEntityCombatEvents.AFTER_KILLED_OTHER_ENTITY.register((world, entity, killed) -> {
-            if (entity instanceof ServerPlayer serverPlayer) {
+            if (DialogManager.events().hasListeners(DialogEventType.ON_ENTITY_DEATH) && entity instanceof ServerPlayer serverPlayer) {
                 DialogManager.events().handleEntityDeath(serverPlayer, killed);
             }
         });
 
         UseBlockCallback.EVENT.register((player, world, hand, hitResult) -> {
-            if (!world.isClientSide() && player instanceof ServerPlayer serverPlayer) {
+            if (!world.isClientSide() && DialogManager.events().hasListeners(DialogEventType.ON_PLAYER_INTERACT) && player instanceof ServerPlayer serverPlayer) {
                 DialogManager.events().handleBlockInteract(serverPlayer, hitResult.getBlockPos(), hand);
             }
             return InteractionResult.PASS;
@@ -46,7 +47,7 @@ public final class ChatDialogsFabric implements ModInitializer {
 
         UseItemCallback.EVENT.register((player, world, hand) -> {
             ItemStack stack = player.getItemInHand(hand);
-            if (!world.isClientSide() && player instanceof ServerPlayer serverPlayer) {
+            if (!world.isClientSide() && DialogManager.events().hasListeners(DialogEventType.ON_ITEM_USE) && player instanceof ServerPlayer serverPlayer) {
                 DialogManager.events().handleItemUse(serverPlayer, stack);
             }
             return InteractionResultHolder.pass(stack);
@@ -15,6 +15,7 @@ import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 import ru.nlolik.ChatDialogs;
 import ru.nlolik.dialog.DialogManager;
+import ru.nlolik.dialog.event.DialogEventType;
 
 @Mod(ChatDialogs.MOD_ID)
 public final class ChatDialogsForge {
@@ -51,28 +52,28 @@ public final class ChatDialogsForge {
 
     @SubscribeEvent
     public void onBlockBreak(BlockEvent.BreakEvent event) {
-        if (event.getPlayer() instanceof ServerPlayer player) {
+        if (DialogManager.events().hasListeners(DialogEventType.ON_BLOCK_BREAK) && event.getPlayer() instanceof ServerPlayer player) {
             DialogManager.events().handleBlockBreak(player, event.getState(), event.getPos());
         }
     }
 
     @SubscribeEvent
     public void onEntityDeath(LivingDeathEvent event) {
-        if (event.getSource().getEntity() instanceof ServerPlayer player) {
+        if (DialogManager.events().hasListeners(DialogEventType.ON_ENTITY_DEATH) && event.getSource().getEntity() instanceof ServerPlayer player) {
             DialogManager.events().handleEntityDeath(player, event.getEntity());
         }
     }
 
     @SubscribeEvent
     public void onInteract(PlayerInteractEvent.RightClickBlock event) {
-        if (event.getEntity() instanceof ServerPlayer player) {
+        if (DialogManager.events().hasListeners(DialogEventType.ON_PLAYER_INTERACT) && event.getEntity() instanceof ServerPlayer player) {
             DialogManager.events().handleBlockInteract(player, event.getPos(), event.getHand());
         }
     }
 
     @SubscribeEvent
     public void onItemUse(PlayerInteractEvent.RightClickItem event) {
-        if (event.getEntity() instanceof ServerPlayer player) {
+        if (DialogManager.events().hasListeners(DialogEventType.ON_ITEM_USE) && event.getEntity() instanceof ServerPlayer player) {
             DialogManager.events().handleItemUse(player, event.getItemStack());
         }
     }